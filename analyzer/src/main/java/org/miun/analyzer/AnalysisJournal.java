@@ -0,0 +1,124 @@
+package org.miun.analyzer;
+
+import org.miun.analyzer.support.Checksums;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Records the start, end, status, exit code and output checksum of every analysis stage of a snapshot, so an
+ * interrupted run resumes with the stages that are missing or failed. The journal is replaced atomically on every
+ * change. A stage that ran no process, e.g. because its results were restored from the cache, has no exit code.
+ */
+public class AnalysisJournal {
+    private static final String JOURNAL_FILE = "journal.properties";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final Path snapshotResultsDirectory;
+    private final Properties entries = new Properties();
+
+    private AnalysisJournal(Path snapshotResultsDirectory) {
+        this.snapshotResultsDirectory = snapshotResultsDirectory;
+    }
+
+    public static boolean exists(Path snapshotResultsDirectory) {
+        return Files.isRegularFile(snapshotResultsDirectory.resolve(JOURNAL_FILE));
+    }
+
+    public static AnalysisJournal create(Path snapshotResultsDirectory) throws IOException {
+        AnalysisJournal journal = new AnalysisJournal(snapshotResultsDirectory);
+        journal.write();
+        return journal;
+    }
+
+    public static AnalysisJournal open(Path snapshotResultsDirectory) throws IOException {
+        AnalysisJournal journal = new AnalysisJournal(snapshotResultsDirectory);
+        try (InputStream inputStream = Files.newInputStream(snapshotResultsDirectory.resolve(JOURNAL_FILE))) {
+            journal.entries.load(inputStream);
+        }
+        return journal;
+    }
+
+    /**
+     * Whether the stage completed and its outputs are still the ones it wrote.
+     */
+    public synchronized boolean isCompleted(AnalysisTool tool) throws IOException {
+        return COMPLETED.equals(entries.getProperty(tool + ".status")) && getOutputChecksum(tool).equals(entries.getProperty(tool + ".checksum"));
+    }
+
+    /**
+     * Deletes what an earlier, unfinished run of the stage left behind and records the stage's start.
+     */
+    public synchronized void started(AnalysisTool tool) throws IOException {
+        for (String output : tool.getOutputs()) {
+            deleteOutput(snapshotResultsDirectory.resolve(output));
+        }
+        for (String key : List.of("end", "status", "exitCode", "checksum")) {
+            entries.remove(tool + "." + key);
+        }
+        entries.setProperty(tool + ".start", Instant.now().toString());
+        write();
+    }
+
+    public synchronized void finished(AnalysisTool tool, boolean succeeded, Integer exitCode) throws IOException {
+        entries.setProperty(tool + ".end", Instant.now().toString());
+        entries.setProperty(tool + ".status", succeeded ? COMPLETED : FAILED);
+        if (exitCode != null) {
+            entries.setProperty(tool + ".exitCode", exitCode.toString());
+        }
+        entries.setProperty(tool + ".checksum", getOutputChecksum(tool));
+        write();
+    }
+
+    // a hash over the paths and contents of all files the stage wrote
+    private String getOutputChecksum(AnalysisTool tool) throws IOException {
+        StringBuilder listing = new StringBuilder();
+        for (String output : tool.getOutputs()) {
+            Path outputPath = snapshotResultsDirectory.resolve(output);
+            if (!Files.exists(outputPath)) {
+                continue;
+            }
+
+            try (Stream<Path> paths = Files.walk(outputPath)) {
+                for (Path path : paths.filter(Files::isRegularFile).sorted().toList()) {
+                    listing.append(snapshotResultsDirectory.relativize(path)).append('\0').append(Checksums.sha256(List.of(path))).append('\n');
+                }
+            }
+        }
+        return Checksums.sha256(listing.toString());
+    }
+
+    // written to a temporary file first and forced to disk before the rename, so a crash leaves either the old or
+    // the new journal and never a renamed file whose contents were not written yet
+    private void write() throws IOException {
+        Path tempFile = snapshotResultsDirectory.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            entries.store(Channels.newOutputStream(channel), "Analysis stages of " + snapshotResultsDirectory.getFileName());
+            channel.force(true);
+        }
+        Files.move(tempFile, snapshotResultsDirectory.resolve(JOURNAL_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteOutput(Path output) throws IOException {
+        if (!Files.exists(output)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(output)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.miun.analyzer;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.miun.analyzer.support.MemoryBudget;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static org.miun.constants.Constants.*;
+
+/**
+ * Analyzes snapshots in parallel, while limiting how many runs of each tool execute at the same time
+ * and how much memory the running tools may reserve in total.
+ */
+public class AnalysisScheduler {
+    private final ExecutorService snapshotExecutor = Executors.newFixedThreadPool(ANALYSIS_CONCURRENCY);
+    // stage threads mostly wait for tool slots and tool processes, so there is one per running stage
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool();
+    private final Map<AnalysisTool, Semaphore> toolPermits = new EnumMap<>(AnalysisTool.class);
+    private final Map<AnalysisTool, Integer> toolMemoryMb = new EnumMap<>(AnalysisTool.class);
+    private final MemoryBudget memoryBudget = new MemoryBudget(ANALYSIS_MEMORY_BUDGET_MB > 0 ? ANALYSIS_MEMORY_BUDGET_MB : getDefaultMemoryBudgetMb());
+    private final List<Future<?>> pendingAnalyses = new ArrayList<>();
+
+    public AnalysisScheduler() {
+        toolPermits.put(AnalysisTool.DESIGNITE, new Semaphore(DESIGNITE_CONCURRENCY));
+        toolPermits.put(AnalysisTool.DV8, new Semaphore(DV8_CONCURRENCY));
+        toolPermits.put(AnalysisTool.TESTS, new Semaphore(TEST_CONCURRENCY));
+        // the modularity engine runs inside the analyzer and parallelizes on its own
+        toolPermits.put(AnalysisTool.MODULARITY, new Semaphore(1));
+        toolMemoryMb.put(AnalysisTool.DESIGNITE, DESIGNITE_MEMORY_MB);
+        toolMemoryMb.put(AnalysisTool.DV8, DV8_MEMORY_MB);
+        toolMemoryMb.put(AnalysisTool.TESTS, TEST_MEMORY_MB);
+        toolMemoryMb.put(AnalysisTool.MODULARITY, 0);
+    }
+
+    public void submit(Runnable snapshotAnalysis) {
+        pendingAnalyses.add(snapshotExecutor.submit(snapshotAnalysis));
+    }
+
+    /**
+     * Starts a stage of a snapshot's analysis on a thread of its own, so the stages of a snapshot run at the same time.
+     */
+    public CompletableFuture<Boolean> startStage(Callable<Boolean> stage) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return stage.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, stageExecutor);
+    }
+
+    public int getMemoryMb(AnalysisTool tool) {
+        return toolMemoryMb.get(tool);
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Runs a tool once one of its slots is free and its memory reservation fits into the budget, and returns its result.
+     */
+    public StageResult runTool(AnalysisTool tool, Supplier<StageResult> toolRun) throws InterruptedException {
+        // tool hosts reserve the memory of their heap for as long as they live, not per run
+        int reservedMb = tool == AnalysisTool.DESIGNITE && DESIGNITE_TOOL_HOST ? 0 : toolMemoryMb.get(tool);
+        Semaphore permits = toolPermits.get(tool);
+
+        permits.acquire();
+        try {
+            memoryBudget.reserve(reservedMb);
+            try {
+                return toolRun.get();
+            } finally {
+                memoryBudget.release(reservedMb);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Waits until all submitted snapshots are analyzed and returns the number of analyses that failed.
+     */
+    public int awaitCompletion() {
+        snapshotExecutor.shutdown();
+
+        int failures = 0;
+        for (Future<?> pendingAnalysis : pendingAnalyses) {
+            try {
+                pendingAnalysis.get();
+            } catch (ExecutionException e) {
+                failures++;
+                System.err.println("Snapshot analysis failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                snapshotExecutor.shutdownNow();
+                stageExecutor.shutdownNow();
+                System.err.println("Interrupted while waiting for snapshot analyses");
+                return failures + 1;
+            }
+        }
+        // snapshot analyses start stages until they finish
+        stageExecutor.shutdown();
+        return failures;
+    }
+
+    private static int getDefaultMemoryBudgetMb() {
+        OperatingSystemMXBean operatingSystem = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        return (int) (operatingSystem.getTotalMemorySize() / (1024 * 1024) * 3 / 4);
+    }
+}
@@ -0,0 +1,23 @@
+package org.miun.analyzer;
+
+import java.util.List;
+
+public enum AnalysisTool {
+    DESIGNITE(List.of("DesigniteResults")),
+    DV8(List.of("DV8Results")),
+    MODULARITY(List.of("ModularityResults")),
+    TESTS(List.of("testdata.csv", "testcases.csv", "testmodules.csv", "JacocoResults"));
+
+    private final List<String> outputs;
+
+    AnalysisTool(List<String> outputs) {
+        this.outputs = outputs;
+    }
+
+    /**
+     * The files and directories the tool writes to a snapshot's result directory.
+     */
+    public List<String> getOutputs() {
+        return outputs;
+    }
+}
@@ -0,0 +1,166 @@
+package org.miun.analyzer;
+
+import org.miun.analyzer.support.SnapshotSize;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Predicts how long each stage of a snapshot's analysis takes from the snapshot's size, so the longest analyses can
+ * start first. A stage takes a number of seconds per byte of source, with every module counted as a fixed number of
+ * bytes; the rate is learned from the recorded runs of the same project, of all projects if there are none, and
+ * falls back to a default rate before the first run. Predicted and actual durations of every run are appended to the
+ * model file, which the next analysis learns from.
+ */
+public class CostModel {
+    private static final String HEADER = "Project,Snapshot,Stage,SourceBytes,Modules,PredictedSeconds,ActualSeconds\n";
+    // Maven starts a build and a test JVM for every module, which costs about as much as 2000 lines of 40 bytes
+    private static final long MODULE_BYTES = 80_000;
+    private static final Map<AnalysisTool, Double> DEFAULT_SECONDS_PER_BYTE = Map.of(
+            AnalysisTool.DESIGNITE, 0.00005,
+            AnalysisTool.TESTS, 0.000125,
+            AnalysisTool.DV8, 0.000025,
+            AnalysisTool.MODULARITY, 0.0000025);
+
+    private final Path modelFile;
+    private final Map<String, Rate> projectRates = new HashMap<>();
+    private final Map<AnalysisTool, Rate> toolRates = new EnumMap<>(AnalysisTool.class);
+
+    /**
+     * The snapshot's size and the predicted seconds of each stage.
+     */
+    public record Estimate(SnapshotSize size, Map<AnalysisTool, Double> predictedSeconds) {
+        public double totalSeconds() {
+            return predictedSeconds.values().stream().mapToDouble(Double::doubleValue).sum();
+        }
+    }
+
+    private static class Rate {
+        private double seconds;
+        private double bytes;
+
+        private void add(long runBytes, double runSeconds) {
+            seconds += runSeconds;
+            bytes += runBytes;
+        }
+
+        private double secondsPerByte() {
+            return seconds / bytes;
+        }
+    }
+
+    private CostModel(Path modelFile) {
+        this.modelFile = modelFile;
+    }
+
+    /**
+     * Loads the runs recorded in the model file; a model without file predicts from the default rates. A model file
+     * recorded in other units is set aside as .old and replaced.
+     */
+    public static CostModel load(Path modelFile) {
+        CostModel model = new CostModel(modelFile);
+        if (!Files.isRegularFile(modelFile)) {
+            return model;
+        }
+
+        try {
+            if (!hasCurrentHeader(modelFile)) {
+                Path oldModelFile = modelFile.resolveSibling(modelFile.getFileName() + ".old");
+                Files.move(modelFile, oldModelFile, StandardCopyOption.REPLACE_EXISTING);
+                System.out.printf("The cost model %s was recorded in other units, it is moved to %s and learned anew%n", modelFile, oldModelFile);
+                return model;
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not set aside the cost model %s, using default rates: %s%n", modelFile, e.getMessage());
+            return model;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(modelFile)) {
+            reader.readLine();  // skip header
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                try {
+                    AnalysisTool tool = AnalysisTool.valueOf(columns[2]);
+                    long bytes = getBytes(new SnapshotSize(Long.parseLong(columns[3]), Integer.parseInt(columns[4])));
+                    double actualSeconds = Double.parseDouble(columns[6]);
+                    model.projectRates.computeIfAbsent(columns[0] + "/" + tool, key -> new Rate()).add(bytes, actualSeconds);
+                    model.toolRates.computeIfAbsent(tool, key -> new Rate()).add(bytes, actualSeconds);
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Skipping malformed cost model line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not read the cost model %s, using default rates: %s%n", modelFile, e.getMessage());
+        }
+        return model;
+    }
+
+    /**
+     * Measures the snapshot and predicts the seconds of each of the stages. A snapshot that cannot be measured is
+     * predicted to take no time.
+     */
+    public Estimate estimate(String project, File snapshot, List<AnalysisTool> tools) {
+        SnapshotSize size;
+        try {
+            size = SnapshotSize.measure(snapshot);
+        } catch (IOException e) {
+            System.err.printf("Could not measure snapshot %s of project %s: %s%n", snapshot.getName(), project, e.getMessage());
+            size = new SnapshotSize(0, 0);
+        }
+
+        Map<AnalysisTool, Double> predictedSeconds = new EnumMap<>(AnalysisTool.class);
+        for (AnalysisTool tool : tools) {
+            predictedSeconds.put(tool, getSecondsPerByte(project, tool) * getBytes(size));
+        }
+        return new Estimate(size, predictedSeconds);
+    }
+
+    /**
+     * Appends the predicted and actual duration of a stage's run to the model file.
+     */
+    public synchronized void record(String project, String snapshot, AnalysisTool tool, Estimate estimate, Duration actual) {
+        String line = String.format(Locale.US, "%s,%s,%s,%d,%d,%.2f,%.2f%n", project, snapshot, tool, estimate.size().sourceBytes(),
+                estimate.size().modules(), estimate.predictedSeconds().getOrDefault(tool, 0.0), actual.toMillis() / 1000.0);
+        try {
+            if (!Files.exists(modelFile)) {
+                Files.createDirectories(modelFile.toAbsolutePath().getParent());
+                Files.writeString(modelFile, HEADER);
+            }
+            Files.writeString(modelFile, line, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.printf("Could not record the duration of %s for %s: %s%n", tool, snapshot, e.getMessage());
+        }
+    }
+
+    private static boolean hasCurrentHeader(Path modelFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(modelFile)) {
+            return HEADER.strip().equals(reader.readLine());
+        }
+    }
+
+    private double getSecondsPerByte(String project, AnalysisTool tool) {
+        Rate rate = projectRates.get(project + "/" + tool);
+        if (rate == null) {
+            rate = toolRates.get(tool);
+        }
+        return rate != null ? rate.secondsPerByte() : DEFAULT_SECONDS_PER_BYTE.get(tool);
+    }
+
+    // at least one byte, so empty snapshots still have a rate
+    private static long getBytes(SnapshotSize size) {
+        return Math.max(1, size.sourceBytes() + size.modules() * MODULE_BYTES);
+    }
+}
@@ -0,0 +1,253 @@
+package org.miun.analyzer;
+
+import org.miun.analyzer.support.Checksums;
+import org.miun.analyzer.support.CommandRunner;
+import org.miun.analyzer.support.MemoryBudget;
+import org.miun.analyzer.support.ProcessResult;
+import org.miun.analyzer.support.RunReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.miun.constants.Constants.*;
+
+/**
+ * Resolves the dependencies and plugins of every distinct set of build files once into a shared local repository,
+ * so test runs can build offline against it. Builds that have to go online download into a private repository on top
+ * of the shared one, which is merged back afterwards. Resolutions and merges run one at a time, so the shared
+ * repository has a single writer.
+ */
+public class DependencyResolver {
+    private static final String GO_OFFLINE = "org.apache.maven.plugins:maven-dependency-plugin:3.7.0:go-offline";
+    private static final String REMOTE_REPOSITORIES = "_remote.repositories";
+    private static final String LOCAL_METADATA = "maven-metadata-local.xml";
+
+    private final String mvnCommand;
+    private final Path repository;
+    private final String settingsFile;
+    private final MemoryBudget memoryBudget;
+    private final int memoryMb;
+    private final Map<String, Future<Boolean>> resolutions = new ConcurrentHashMap<>();
+    private final ExecutorService resolver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dependency-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A resolver running the given Maven command with the settings file, which may be null, and reserving the given
+     * memory of the budget for each resolution.
+     */
+    public DependencyResolver(String mvnCommand, Path repository, String settingsFile, MemoryBudget memoryBudget, int memoryMb) {
+        this.mvnCommand = mvnCommand;
+        this.repository = repository.toAbsolutePath();
+        this.settingsFile = settingsFile;
+        this.memoryBudget = memoryBudget;
+        this.memoryMb = memoryMb;
+    }
+
+    /**
+     * The options that point Maven to the shared repository and the configured settings.
+     */
+    public List<String> getMavenOptions() {
+        return getMavenOptions(repository);
+    }
+
+    /**
+     * The options that point Maven to a private repository, reading what it lacks from the shared repository.
+     */
+    public List<String> getMavenOptions(Path privateRepository) {
+        List<String> options = new ArrayList<>();
+        options.add("-Dmaven.repo.local=" + privateRepository.toAbsolutePath());
+        if (!privateRepository.toAbsolutePath().equals(repository)) {
+            options.add("-Dmaven.repo.local.tail=" + repository);
+        }
+        if (settingsFile != null) {
+            options.add("-s");
+            options.add(settingsFile);
+        }
+        return options;
+    }
+
+    /**
+     * Creates an empty private repository next to the shared one, on the same file system, so merging moves files.
+     */
+    public Path createPrivateRepository() throws IOException {
+        Path privateRepositories = repository.resolve(".private");
+        Files.createDirectories(privateRepositories);
+        return Files.createTempDirectory(privateRepositories, "build-");
+    }
+
+    /**
+     * Merges what a build downloaded into the private repository into the shared one and deletes the private
+     * repository. The merge runs after the resolutions and merges submitted before it.
+     */
+    public Future<?> merge(Path privateRepository) {
+        return resolver.submit(() -> {
+            try {
+                mergeRepository(privateRepository);
+            } catch (IOException e) {
+                System.err.printf("Could not merge %s into the shared Maven repository: %s%n", privateRepository, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Waits until the dependencies of the project's build files are resolved, resolving them if no snapshot with the
+     * same build files did before, and returns whether the project can be built offline.
+     */
+    public boolean awaitResolution(File projectDirectory, File snapshotResultsDirectory) throws InterruptedException {
+        String fingerprint;
+        try {
+            fingerprint = getBuildFingerprint(projectDirectory.toPath());
+        } catch (IOException e) {
+            System.err.printf("Could not fingerprint the build files of %s: %s%n", snapshotResultsDirectory.getName(), e.getMessage());
+            return false;
+        }
+
+        // the first snapshot of a fingerprint waits for its own resolution, so its project directory outlives it
+        Future<Boolean> resolution = resolutions.computeIfAbsent(fingerprint, key -> resolver.submit(() -> resolve(key, projectDirectory, snapshotResultsDirectory)));
+        try {
+            return resolution.get();
+        } catch (ExecutionException e) {
+            System.err.println("Dependency resolution failed: " + e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the pending merges, which the analysis no longer waits for, and stops the resolver.
+     */
+    public void close() throws InterruptedException {
+        resolver.shutdown();
+        resolver.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean resolve(String fingerprint, File projectDirectory, File snapshotResultsDirectory) throws IOException, InterruptedException {
+        Path marker = repository.resolve(".resolved").resolve(fingerprint);
+        if (Files.exists(marker)) {
+            return true;
+        }
+
+        List<String> command = new ArrayList<>(List.of(mvnCommand, "-B", GO_OFFLINE));
+        command.addAll(getMavenOptions());
+        ProcessResult result;
+        memoryBudget.reserve(memoryMb);
+        try {
+            result = CommandRunner.runTestCommand(command, projectDirectory, new File(snapshotResultsDirectory, "resolve.log.gz"),
+                    Map.of("MAVEN_OPTS", "-Xmx" + memoryMb + "m"), Duration.ofMinutes(TEST_TIMEOUT_MINUTES));
+        } finally {
+            memoryBudget.release(memoryMb);
+        }
+        RunReport.record(snapshotResultsDirectory, "RESOLVE", result);
+        if (result.exitCode() != 0) {
+            return false;
+        }
+
+        Files.createDirectories(marker.getParent());
+        Files.writeString(marker, snapshotResultsDirectory.getParentFile().getName() + "/" + snapshotResultsDirectory.getName() + System.lineSeparator());
+        return true;
+    }
+
+    // files the shared repository already has are kept, they are the same artifacts; only the record of the remote
+    // repositories an artifact is available from grows, and files about failed or pending downloads are dropped, as
+    // are the modules a build installed, which belong to its snapshot
+    private void mergeRepository(Path privateRepository) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(privateRepository)) {
+            files = paths.filter(Files::isRegularFile).toList();
+        }
+        // installing writes local metadata next to the versions of the artifact, downloads write the remote's
+        List<Path> installedArtifacts = files.stream().filter(file -> file.getFileName().toString().equals(LOCAL_METADATA)).map(Path::getParent).toList();
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".lastUpdated") || name.equals("resolver-status.properties") || installedArtifacts.stream().anyMatch(file::startsWith)) {
+                continue;
+            }
+
+            Path target = repository.resolve(privateRepository.relativize(file).toString());
+            Files.createDirectories(target.getParent());
+            if (name.equals(REMOTE_REPOSITORIES) && Files.exists(target)) {
+                mergeRemoteRepositories(file, target);
+            } else if (!Files.exists(target)) {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        try (Stream<Path> paths = Files.walk(privateRepository)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void mergeRemoteRepositories(Path file, Path target) throws IOException {
+        Properties merged = new Properties();
+        try (InputStream input = Files.newInputStream(target)) {
+            merged.load(input);
+        }
+        Properties added = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            added.load(input);
+        }
+        if (merged.keySet().containsAll(added.keySet())) {
+            return;
+        }
+
+        added.forEach(merged::putIfAbsent);
+        Path tempFile = target.resolveSibling(REMOTE_REPOSITORIES + ".tmp");
+        try (OutputStream output = Files.newOutputStream(tempFile)) {
+            merged.store(output, null);
+        }
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // all poms and the .mvn directory, which holds extensions and Maven options that affect resolution
+    private static String getBuildFingerprint(Path projectDirectory) throws IOException {
+        List<Path> buildFiles = new ArrayList<>();
+        Files.walkFileTree(projectDirectory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                String name = directory.equals(projectDirectory) ? "" : directory.getFileName().toString();
+                return name.equals("target") || name.equals(".git") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (file.getFileName().toString().equals("pom.xml") || file.startsWith(projectDirectory.resolve(".mvn"))) {
+                    buildFiles.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        buildFiles.sort(null);
+
+        StringBuilder listing = new StringBuilder();
+        for (Path buildFile : buildFiles) {
+            listing.append(projectDirectory.relativize(buildFile).toString().replace(File.separatorChar, '/')).append('\0').append(Checksums.sha256(List.of(buildFile))).append('\n');
+        }
+        return Checksums.sha256(listing.toString());
+    }
+}
@@ -4,6 +4,8 @@ package org.miun.analyzer;
 public class Main {
     public static void main(String[] args) {
         SnapshotAnalyzer snapshotAnalyzer = new SnapshotAnalyzer();
-        snapshotAnalyzer.analyzeSnapshots();
+        if (!snapshotAnalyzer.analyzeSnapshots()) {
+            System.exit(1);
+        }
     }
 }
@@ -0,0 +1,206 @@
+package org.miun.analyzer;
+
+import org.miun.analyzer.support.Checksums;
+import org.miun.analyzer.support.MavenReactor;
+import org.miun.analyzer.support.ModuleFingerprints;
+import org.miun.analyzer.support.SnapshotInputs;
+import org.miun.analyzer.support.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Tool results keyed by a hash of the inputs the tool reads and the tool's version, so snapshots whose inputs did not
+ * change since an earlier snapshot reuse that snapshot's results instead of running the tool again.
+ */
+public class ResultCache {
+    private final Path cacheDirectory;
+    private final Map<AnalysisTool, String> toolVersions;
+    private final Map<AnalysisTool, AtomicInteger> hits = new EnumMap<>(AnalysisTool.class);
+    private final Map<AnalysisTool, AtomicInteger> misses = new EnumMap<>(AnalysisTool.class);
+    private final AtomicInteger moduleHits = new AtomicInteger();
+    private final AtomicInteger moduleMisses = new AtomicInteger();
+
+    public ResultCache(Path cacheDirectory, Map<AnalysisTool, String> toolVersions) {
+        this.cacheDirectory = cacheDirectory;
+        this.toolVersions = toolVersions;
+        for (AnalysisTool tool : AnalysisTool.values()) {
+            hits.put(tool, new AtomicInteger());
+            misses.put(tool, new AtomicInteger());
+        }
+    }
+
+    public String getKey(AnalysisTool tool, SnapshotInputs inputs) {
+        // Designite and DV8 only read the sources, the test stage also builds and runs the tests
+        Predicate<String> selection = tool == AnalysisTool.TESTS ? SnapshotInputs::isBuildInput : SnapshotInputs::isSource;
+        return Checksums.sha256(inputs.hash(selection) + "\0" + toolVersions.get(tool));
+    }
+
+    /**
+     * Links the cached results of the key into the result directory and returns whether there were any.
+     */
+    public boolean restore(AnalysisTool tool, String key, Path resultsDirectory) throws IOException {
+        Path entry = getEntry(tool, key);
+        if (!isComplete(tool, entry)) {
+            misses.get(tool).incrementAndGet();
+            return false;
+        }
+
+        for (String output : tool.getOutputs()) {
+            link(entry.resolve(output), resultsDirectory.resolve(output));
+        }
+        hits.get(tool).incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stores the results a tool wrote to the result directory. Results are only stored if the tool wrote all its outputs.
+     */
+    public void store(AnalysisTool tool, String key, Path resultsDirectory) throws IOException {
+        Path entry = getEntry(tool, key);
+        List<Path> outputs = tool.getOutputs().stream().map(resultsDirectory::resolve).toList();
+        if (isComplete(tool, entry) || !outputs.stream().allMatch(Files::exists)) {
+            return;
+        }
+        if (Files.isDirectory(entry)) {
+            deleteDirectory(entry);
+        }
+
+        // written under a temporary name, so a half stored entry is never restored
+        Path tempEntry = entry.resolveSibling(key + "-" + UUID.randomUUID() + ".tmp");
+        Files.createDirectories(tempEntry);
+        for (Path output : outputs) {
+            link(output, tempEntry.resolve(output.getFileName()));
+        }
+
+        try {
+            Files.move(tempEntry, entry);
+        } catch (FileAlreadyExistsException e) {
+            // another snapshot with the same inputs stored its results first
+            deleteDirectory(tempEntry);
+        }
+    }
+
+    /**
+     * The fingerprints of the reactor modules of a snapshot, or null if they cannot be computed.
+     */
+    public Map<File, String> getModuleFingerprints(File repoDir, MavenReactor reactor, SnapshotInputs inputs) {
+        return ModuleFingerprints.compute(repoDir, reactor, inputs, toolVersions.get(AnalysisTool.TESTS));
+    }
+
+    public boolean hasModule(String fingerprint) {
+        boolean cached = Files.exists(getModuleEntry(fingerprint).resolve("testcases.tsv"));
+        (cached ? moduleHits : moduleMisses).incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Restores a module's cached coverage report and execution data, and returns its test cases.
+     */
+    public List<TestCase> restoreModule(String fingerprint, File module, File coverageReport) throws IOException {
+        Path entry = getModuleEntry(fingerprint);
+        if (Files.exists(entry.resolve("coverage.csv"))) {
+            link(entry.resolve("coverage.csv"), coverageReport.toPath());
+        }
+        if (Files.exists(entry.resolve("jacoco.exec"))) {
+            Path execFile = module.toPath().resolve("target/jacoco.exec");
+            Files.createDirectories(execFile.getParent());
+            Files.copy(entry.resolve("jacoco.exec"), execFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return TestCase.read(entry.resolve("testcases.tsv"));
+    }
+
+    /**
+     * Stores the results of a module that was built and tested, a module without tests has neither coverage nor execution data.
+     */
+    public void storeModule(String fingerprint, File module, File coverageReport, List<TestCase> testCases) throws IOException {
+        Path entry = getModuleEntry(fingerprint);
+        if (Files.exists(entry.resolve("testcases.tsv"))) {
+            return;
+        }
+        // entries from before test cases were cached are replaced
+        if (Files.isDirectory(entry)) {
+            deleteDirectory(entry);
+        }
+
+        Path tempEntry = entry.resolveSibling(fingerprint + "-" + UUID.randomUUID() + ".tmp");
+        Files.createDirectories(tempEntry);
+        Path execFile = module.toPath().resolve("target/jacoco.exec");
+        if (Files.exists(execFile)) {
+            Files.copy(execFile, tempEntry.resolve("jacoco.exec"));
+        }
+        if (coverageReport.exists()) {
+            link(coverageReport.toPath(), tempEntry.resolve("coverage.csv"));
+        }
+        TestCase.write(tempEntry.resolve("testcases.tsv"), testCases);
+
+        try {
+            Files.move(tempEntry, entry);
+        } catch (FileAlreadyExistsException e) {
+            deleteDirectory(tempEntry);
+        }
+    }
+
+    public void printSummary() {
+        for (AnalysisTool tool : AnalysisTool.values()) {
+            if (hits.get(tool).get() + misses.get(tool).get() > 0) {
+                System.out.printf("Result cache %s: %d hits, %d misses%n", tool, hits.get(tool).get(), misses.get(tool).get());
+            }
+        }
+        if (moduleHits.get() + moduleMisses.get() > 0) {
+            System.out.printf("Result cache modules: %d hits, %d misses%n", moduleHits.get(), moduleMisses.get());
+        }
+    }
+
+    // entries written before a tool had all its current outputs are replaced instead of restored
+    private static boolean isComplete(AnalysisTool tool, Path entry) {
+        return tool.getOutputs().stream().allMatch(output -> Files.exists(entry.resolve(output)));
+    }
+
+    private Path getModuleEntry(String fingerprint) {
+        return cacheDirectory.resolve("modules").resolve(fingerprint);
+    }
+
+    private Path getEntry(AnalysisTool tool, String key) {
+        return cacheDirectory.resolve(tool.name().toLowerCase()).resolve(key);
+    }
+
+    // files are hard linked where possible, results are never modified after they are written
+    private static void link(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : paths.toList()) {
+                Path targetPath = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(targetPath);
+                    continue;
+                }
+
+                try {
+                    Files.createLink(targetPath, path);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(path, targetPath);
+                }
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -1,174 +1,779 @@
 package org.miun.analyzer;
 
 import org.miun.analyzer.exceptions.SnapshotResultDirectoryAlreadyExists;
+import org.jacoco.core.JaCoCo;
+import org.miun.analyzer.support.Checksums;
+import org.miun.analyzer.support.ClassDataSharing;
 import org.miun.analyzer.support.CommandRunner;
+import org.miun.analyzer.support.JacocoReporter;
+import org.miun.analyzer.support.MavenReactor;
+import org.miun.analyzer.support.MemoryBudget;
+import org.miun.analyzer.support.ModularityMetrics;
+import org.miun.analyzer.support.ModuleFingerprints;
+import org.miun.analyzer.support.OutputPump;
+import org.miun.analyzer.support.ProcessResult;
+import org.miun.analyzer.support.RunReport;
+import org.miun.analyzer.support.SnapshotArchive;
+import org.miun.analyzer.support.SnapshotInputs;
+import org.miun.analyzer.support.SnapshotWorkspace;
+import org.miun.analyzer.support.SourceDependencyGraph;
+import org.miun.analyzer.support.SurefireReports;
+import org.miun.analyzer.support.TestCase;
+import org.miun.analyzer.support.TestCounts;
+import org.miun.analyzer.support.ToolHostPool;
 import org.miun.constants.Platform;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.miun.constants.Constants.*;
 
 public class SnapshotAnalyzer {
     private static final File DESIGNITE_JAR = new File(DESIGNITE_JAR_PATH);
+    // Maven's default local repository, which partial builds without shared repository read behind their own
+    private static final Path USER_MAVEN_REPOSITORY = Path.of(System.getProperty("user.home"), ".m2", "repository");
+    private static final ClassDataSharing CLASS_DATA_SHARING = new ClassDataSharing(Path.of(CLASS_DATA_SHARING_DIRECTORY), CLASS_DATA_SHARING_ENABLED);
+
+    private record ScheduledSnapshot(File snapshot, File projectResultsDirectory, List<AnalysisTool> pendingTools, CostModel.Estimate estimate) {
+        private ScheduledSnapshot withEstimate(CostModel.Estimate estimate) {
+            return new ScheduledSnapshot(snapshot, projectResultsDirectory, pendingTools, estimate);
+        }
+    }
 
-    public void analyzeSnapshots() {
+    private final AnalysisScheduler scheduler = new AnalysisScheduler();
+    private final ToolHostPool designiteHosts = DESIGNITE_TOOL_HOST ? new ToolHostPool(DESIGNITE_JAR, DESIGNITE_MEMORY_MB, TOOL_HOST_MAX_RUNS, CLASS_DATA_SHARING, scheduler.getMemoryBudget()) : null;
+    private final ResultCache resultCache = RESULT_CACHE ? new ResultCache(Path.of(RESULT_CACHE_DIRECTORY), getToolVersions()) : null;
+    private final CostModel costModel = COST_BASED_SCHEDULING ? CostModel.load(Path.of(COST_MODEL_FILE)) : null;
+    private final DependencyResolver dependencyResolver = ANALYZE_TESTABILITY && DEPENDENCY_PRE_RESOLUTION
+            ? new DependencyResolver(PLATFORM.getMvnCommand(), Path.of(SHARED_MAVEN_REPOSITORY), MAVEN_SETTINGS_FILE, scheduler.getMemoryBudget(), getMavenHeapMb(TEST_MEMORY_MB)) : null;
+
+    /**
+     * Analyzes the snapshots of all projects in parallel and returns whether every analysis completed.
+     */
+    public boolean analyzeSnapshots() {
         File snapshotsFolder = new File(BASE_SNAPSHOT_DIRECTORY);
         if (!snapshotsFolder.isDirectory()) {
             System.err.println("The specified path is not a directory.");
-            return;
+            return false;
         }
 
-        File[] projects = snapshotsFolder.listFiles(File::isDirectory);
+        // hidden directories such as the downloader's .mirrors cache are not projects
+        File[] projects = snapshotsFolder.listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
         if (projects == null) {
             System.err.println("Unable to access project folders.");
-            return;
+            return false;
         }
 
+        List<ScheduledSnapshot> snapshots = new ArrayList<>();
         for (File project : projects) {
-            analyzeProjectSnapshots(project);
+            snapshots.addAll(listProjectSnapshots(project));
+        }
+        if (costModel != null) {
+            // the executor starts snapshots in the order they are submitted, the longest predicted analysis first
+            snapshots = snapshots.parallelStream()
+                    .map(snapshot -> snapshot.withEstimate(costModel.estimate(snapshot.projectResultsDirectory().getName(), snapshot.snapshot(), snapshot.pendingTools())))
+                    .sorted(Comparator.comparingDouble((ScheduledSnapshot snapshot) -> snapshot.estimate().totalSeconds()).reversed())
+                    .toList();
+        }
+        snapshots.forEach(this::scheduleSnapshot);
+
+        int failures = scheduler.awaitCompletion();
+        if (designiteHosts != null) {
+            designiteHosts.close();
+        }
+        if (dependencyResolver != null) {
+            try {
+                dependencyResolver.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Interrupted while merging downloaded artifacts into the shared Maven repository");
+            }
+        }
+        CLASS_DATA_SHARING.printSummary();
+        if (resultCache != null) {
+            resultCache.printSummary();
         }
+        if (failures > 0) {
+            System.err.printf("%d snapshot analyses failed%n", failures);
+        }
+        return failures == 0;
     }
 
-    private static void analyzeProjectSnapshots(File projectFolder) {
+    private List<ScheduledSnapshot> listProjectSnapshots(File projectFolder) {
         File projectResultsDirectory = new File(RESULTS_DIRECTORY, projectFolder.getName());
         if (!projectResultsDirectory.exists()) {
             projectResultsDirectory.mkdirs();
         }
 
-        File[] snapshotFolders = projectFolder.listFiles(File::isDirectory);
-        if (snapshotFolders == null) {
+        // hidden directories such as the downloader's .objects store are not snapshots
+        File[] snapshots = projectFolder.listFiles(file -> (file.isDirectory() && !file.getName().startsWith(".")) || SnapshotArchive.isArchive(file));
+        if (snapshots == null) {
             System.err.println("Unable to access snapshots in project: " + projectFolder.getName());
-            return;
+            return List.of();
         }
+        // snapshots the journal shows as analyzed are dropped before they are measured, the others only estimate their pending stages
+        List<ScheduledSnapshot> scheduledSnapshots = new ArrayList<>();
+        for (File snapshot : snapshots) {
+            File snapshotResultsDirectory = getSnapshotResultsDirectory(snapshot, projectResultsDirectory);
+            List<AnalysisTool> pendingTools = peekPendingTools(snapshotResultsDirectory);
+            if (pendingTools.isEmpty()) {
+                System.out.printf("Snapshot %s of project %s is already analyzed%n", snapshotResultsDirectory.getName(), projectFolder.getName());
+            } else {
+                scheduledSnapshots.add(new ScheduledSnapshot(snapshot, projectResultsDirectory, pendingTools, null));
+            }
+        }
+        return scheduledSnapshots;
+    }
+
+    // the journal is only read here, the analysis claims the result directory and reads it again
+    private static List<AnalysisTool> peekPendingTools(File snapshotResultsDirectory) {
+        if (!AnalysisJournal.exists(snapshotResultsDirectory.toPath())) {
+            return getEnabledTools();
+        }
+        try {
+            return getPendingTools(AnalysisJournal.open(snapshotResultsDirectory.toPath()));
+        } catch (IOException e) {
+            return getEnabledTools();
+        }
+    }
+
+    private static File getSnapshotResultsDirectory(File snapshot, File projectResultsDirectory) {
+        return new File(projectResultsDirectory, SnapshotArchive.isArchive(snapshot) ? SnapshotArchive.getSnapshotName(snapshot) : snapshot.getName());
+    }
 
-        for (File snapshotFolder : snapshotFolders) {
+    private void scheduleSnapshot(ScheduledSnapshot scheduledSnapshot) {
+        scheduler.submit(() -> {
             try {
-                analyzeSnapshot(snapshotFolder, projectResultsDirectory);
+                analyzeSnapshot(scheduledSnapshot.snapshot(), scheduledSnapshot.projectResultsDirectory(), scheduledSnapshot.estimate());
             } catch (SnapshotResultDirectoryAlreadyExists e) {
                 System.err.printf("Could not analyze snapshot. %s%n", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while analyzing " + scheduledSnapshot.snapshot().getName(), e);
             }
-        }
+        });
     }
 
-    private static void analyzeSnapshot(File snapshot, File projectResultsDirectory) throws SnapshotResultDirectoryAlreadyExists {
-        File snapshotResultsDirectory = new File(projectResultsDirectory, snapshot.getName());
+    private void analyzeSnapshot(File snapshot, File projectResultsDirectory, CostModel.Estimate estimate) throws SnapshotResultDirectoryAlreadyExists, InterruptedException {
+        boolean archived = SnapshotArchive.isArchive(snapshot);
+        String snapshotName = archived ? SnapshotArchive.getSnapshotName(snapshot) : snapshot.getName();
+        File snapshotResultsDirectory = new File(projectResultsDirectory, snapshotName);
 
-        if (snapshotResultsDirectory.exists()) {
-            throw new SnapshotResultDirectoryAlreadyExists(String.format("Result directory for snapshot %s in the project %s already exists", snapshot.getName(), projectResultsDirectory.getName()));
+        AnalysisJournal journal;
+        List<AnalysisTool> pendingTools;
+        try {
+            journal = openJournal(snapshotResultsDirectory, projectResultsDirectory.getName());
+            pendingTools = getPendingTools(journal);
+        } catch (IOException e) {
+            System.err.printf("Could not open the analysis journal of snapshot %s: %s%n", snapshotName, e.getMessage());
+            return;
+        }
+        if (pendingTools.isEmpty()) {
+            System.out.printf("Snapshot %s of project %s is already analyzed%n", snapshotName, projectResultsDirectory.getName());
+            return;
         }
 
-        snapshotResultsDirectory.mkdirs();
+        File manifestFile = new File(snapshot.getParentFile(), snapshotName + ".manifest.csv");
+        if (!archived) {
+            runAnalyses(snapshot, false, manifestFile, snapshotResultsDirectory, journal, pendingTools, estimate);
+            return;
+        }
 
-        if (ANALYZE_ARCHITECTURAL_SMELLS) {
-            analyzeWithDesignite(snapshot, snapshotResultsDirectory);
+        Path extractedSnapshot;
+        try {
+            extractedSnapshot = SnapshotArchive.extract(snapshot, Path.of(SCRATCH_DIRECTORY));
+        } catch (IOException e) {
+            System.err.printf("Could not extract snapshot %s: %s%n", snapshot.getName(), e.getMessage());
+            return;
         }
 
-        if (ANALYZE_TESTABILITY) {
-            buildProjectAndGenerateReport(snapshot, snapshotResultsDirectory);
+        try {
+            runAnalyses(extractedSnapshot.toFile(), true, manifestFile, snapshotResultsDirectory, journal, pendingTools, estimate);
+        } finally {
+            try {
+                SnapshotArchive.delete(extractedSnapshot);
+            } catch (IOException e) {
+                System.err.printf("Could not delete extracted snapshot %s: %s%n", extractedSnapshot, e.getMessage());
+            }
         }
+    }
 
+    // mkdir claims the result directory, so a snapshot is never analyzed twice at the same time;
+    // a result directory with a journal is left from an interrupted run, which is resumed
+    private static AnalysisJournal openJournal(File snapshotResultsDirectory, String projectName) throws SnapshotResultDirectoryAlreadyExists, IOException {
+        if (snapshotResultsDirectory.mkdir()) {
+            return AnalysisJournal.create(snapshotResultsDirectory.toPath());
+        }
+        if (AnalysisJournal.exists(snapshotResultsDirectory.toPath())) {
+            return AnalysisJournal.open(snapshotResultsDirectory.toPath());
+        }
+        throw new SnapshotResultDirectoryAlreadyExists(String.format("Result directory for snapshot %s in the project %s already exists", snapshotResultsDirectory.getName(), projectName));
+    }
+
+    private static List<AnalysisTool> getEnabledTools() {
+        List<AnalysisTool> enabledTools = new ArrayList<>();
+        if (ANALYZE_ARCHITECTURAL_SMELLS) {
+            enabledTools.add(AnalysisTool.DESIGNITE);
+        }
+        if (ANALYZE_TESTABILITY) {
+            enabledTools.add(AnalysisTool.TESTS);
+        }
         if (ANALYZE_MODULARITY) {
-            analyzeWithDV8(snapshot, snapshotResultsDirectory);
+            enabledTools.add(AnalysisTool.MODULARITY);
+        }
+        if (ANALYZE_MODULARITY && DV8_CROSS_CHECK) {
+            enabledTools.add(AnalysisTool.DV8);
+        }
+        return enabledTools;
+    }
+
+    private static List<AnalysisTool> getPendingTools(AnalysisJournal journal) throws IOException {
+        List<AnalysisTool> pendingTools = new ArrayList<>();
+        for (AnalysisTool tool : getEnabledTools()) {
+            if (!journal.isCompleted(tool)) {
+                pendingTools.add(tool);
+            }
+        }
+        return pendingTools;
+    }
+
+    // the stages run at the same time; an extracted archive is a private copy of the snapshot, which the build may
+    // only write into when no other stage reads it
+    private void runAnalyses(File snapshot, boolean extracted, File manifestFile, File snapshotResultsDirectory, AnalysisJournal journal, List<AnalysisTool> pendingTools, CostModel.Estimate estimate) throws InterruptedException {
+        SnapshotInputs inputs = resultCache != null ? readInputs(snapshot, manifestFile) : null;
+
+        boolean buildInPlace = extracted && pendingTools.size() == 1;
+        Map<AnalysisTool, CompletableFuture<Boolean>> stages = new EnumMap<>(AnalysisTool.class);
+        for (AnalysisTool tool : pendingTools) {
+            Supplier<StageResult> toolRun = switch (tool) {
+                case DESIGNITE -> () -> analyzeWithDesignite(snapshot, snapshotResultsDirectory, scheduler.getMemoryMb(AnalysisTool.DESIGNITE));
+                case TESTS -> () -> buildInPlace ? buildProjectAndGenerateReport(snapshot, snapshotResultsDirectory, scheduler.getMemoryMb(AnalysisTool.TESTS), inputs)
+                        : buildInWorkspace(snapshot, snapshotResultsDirectory, scheduler.getMemoryMb(AnalysisTool.TESTS), inputs);
+                case DV8 -> () -> analyzeWithDV8(snapshot, snapshotResultsDirectory);
+                case MODULARITY -> () -> analyzeModularity(snapshot, snapshotResultsDirectory);
+            };
+            Supplier<StageResult> measuredRun = measure(tool, snapshotResultsDirectory, estimate, toolRun);
+            stages.put(tool, scheduler.startStage(() -> runStage(tool, journal, inputs, snapshot, snapshotResultsDirectory, measuredRun)));
+        }
+        awaitStages(snapshotResultsDirectory, stages);
+    }
+
+    // all stages are awaited before the snapshot is released, failed stages are reported together
+    private static void awaitStages(File snapshotResultsDirectory, Map<AnalysisTool, CompletableFuture<Boolean>> stages) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(stages.values().toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException e) {
+            // reported per stage below
+        }
+
+        List<String> failedStages = new ArrayList<>();
+        Throwable error = null;
+        for (Map.Entry<AnalysisTool, CompletableFuture<Boolean>> stage : stages.entrySet()) {
+            try {
+                if (!stage.getValue().join()) {
+                    failedStages.add(stage.getKey().name());
+                }
+            } catch (CompletionException e) {
+                failedStages.add(stage.getKey() + " (" + e.getCause() + ")");
+                error = error == null ? e.getCause() : error;
+            }
+        }
+        if (!failedStages.isEmpty()) {
+            System.err.printf("Snapshot %s/%s: %s failed%n", snapshotResultsDirectory.getParentFile().getName(), snapshotResultsDirectory.getName(), String.join(", ", failedStages));
+        }
+
+        if (error instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedException) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Analysis stages of " + snapshotResultsDirectory.getName() + " failed", error);
+        }
+    }
+
+    // a stage that is interrupted stays started in the journal and runs again when the analysis is resumed
+    private boolean runStage(AnalysisTool tool, AnalysisJournal journal, SnapshotInputs inputs, File snapshot, File snapshotResultsDirectory, Supplier<StageResult> toolRun) throws InterruptedException {
+        try {
+            journal.started(tool);
+        } catch (IOException e) {
+            System.err.printf("Could not start %s for %s: %s%n", tool, snapshotResultsDirectory.getName(), e.getMessage());
+            return false;
+        }
+
+        StageResult result = runTool(tool, inputs, snapshot, snapshotResultsDirectory, toolRun);
+        try {
+            journal.finished(tool, result.succeeded(), result.exitCode());
+        } catch (IOException e) {
+            System.err.printf("Could not record %s for %s in the journal: %s%n", tool, snapshotResultsDirectory.getName(), e.getMessage());
+        }
+        return result.succeeded();
+    }
+
+    // only runs of the tool are recorded, results restored from the cache cost next to nothing
+    private Supplier<StageResult> measure(AnalysisTool tool, File snapshotResultsDirectory, CostModel.Estimate estimate, Supplier<StageResult> toolRun) {
+        if (estimate == null) {
+            return toolRun;
+        }
+        return () -> {
+            Instant start = Instant.now();
+            try {
+                return toolRun.get();
+            } finally {
+                costModel.record(snapshotResultsDirectory.getParentFile().getName(), snapshotResultsDirectory.getName(), tool, estimate, Duration.between(start, Instant.now()));
+            }
+        };
+    }
+
+    private static SnapshotInputs readInputs(File snapshot, File manifestFile) {
+        try {
+            return SnapshotInputs.read(snapshot, manifestFile);
+        } catch (IOException e) {
+            System.err.printf("Could not hash the inputs of snapshot %s, the result cache is not used: %s%n", snapshot.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    // without inputs the tool always runs, otherwise cached results of successful runs on the same inputs are reused
+    private StageResult runTool(AnalysisTool tool, SnapshotInputs inputs, File snapshot, File snapshotResultsDirectory, Supplier<StageResult> toolRun) throws InterruptedException {
+        if (inputs == null) {
+            return scheduleTool(tool, snapshot, snapshotResultsDirectory, toolRun);
+        }
+
+        String key = resultCache.getKey(tool, inputs);
+        try {
+            if (resultCache.restore(tool, key, snapshotResultsDirectory.toPath())) {
+                System.out.printf("Reused cached %s results for %s%n", tool, snapshotResultsDirectory.getName());
+                return StageResult.withoutProcess(true);
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not restore cached %s results: %s%n", tool, e.getMessage());
+        }
+
+        StageResult result = scheduleTool(tool, snapshot, snapshotResultsDirectory, toolRun);
+        if (!result.succeeded()) {
+            return result;  // failed runs are not cached, they are retried with the next snapshot of the same inputs
+        }
+
+        try {
+            resultCache.store(tool, key, snapshotResultsDirectory.toPath());
+        } catch (IOException e) {
+            System.err.printf("Could not cache %s results: %s%n", tool, e.getMessage());
+        }
+        return result;
+    }
+
+    // dependencies are resolved before the build waits for a test slot and its memory, so a resolution never holds
+    // them; the build finds the resolution of its build files done
+    private StageResult scheduleTool(AnalysisTool tool, File snapshot, File snapshotResultsDirectory, Supplier<StageResult> toolRun) throws InterruptedException {
+        if (tool == AnalysisTool.TESTS && dependencyResolver != null) {
+            dependencyResolver.awaitResolution(snapshot, snapshotResultsDirectory);
+        }
+        return scheduler.runTool(tool, toolRun);
+    }
+
+    // results depend on the tool's version as well, the versions are identified by checksums of the tool files
+    private static Map<AnalysisTool, String> getToolVersions() {
+        Map<AnalysisTool, String> toolVersions = new EnumMap<>(AnalysisTool.class);
+        toolVersions.put(AnalysisTool.DESIGNITE, getChecksum(List.of(DESIGNITE_JAR.toPath())));
+        toolVersions.put(AnalysisTool.DV8, getChecksum(List.of(Path.of(DV8_CONSOLE))));
+        toolVersions.put(AnalysisTool.MODULARITY, ModularityMetrics.ENGINE_VERSION);
+
+        List<Path> testTools = new ArrayList<>(List.of(Path.of(JACOCO_AGENT_PATH)));
+        testTools.addAll(ClassDataSharing.findMavenClasspath(PLATFORM.getMvnCommand()));
+        toolVersions.put(AnalysisTool.TESTS, getChecksum(testTools) + " " + ClassDataSharing.getMavenJavaCommand() + " jacoco " + JaCoCo.VERSION);
+        return toolVersions;
+    }
+
+    private static String getChecksum(List<Path> toolFiles) {
+        try {
+            return Checksums.sha256(toolFiles);
+        } catch (IOException e) {
+            // a tool that cannot be read is identified by its path alone
+            return toolFiles.toString();
         }
     }
 
-    private static void analyzeWithDesignite(File repoDir, File baseOutputDirectory) {
+    private StageResult analyzeWithDesignite(File repoDir, File baseOutputDirectory, int memoryMb) {
         File resultsDirectory = new File(baseOutputDirectory, "DesigniteResults");
+        List<String> designiteArgs = List.of("-i", repoDir.getAbsolutePath(), "-o", resultsDirectory.getAbsolutePath(), "-f", "csv");
+
+        Duration timeout = Duration.ofMinutes(DESIGNITE_TIMEOUT_MINUTES);
+        File logFile = new File(baseOutputDirectory, "designite.log.gz");
+        if (designiteHosts == null) {
+            return runDesignite(designiteArgs, baseOutputDirectory, logFile, memoryMb, timeout);
+        }
+
+        MemoryBudget memoryBudget = scheduler.getMemoryBudget();
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                    "java",
-                    "-jar",
-                    DESIGNITE_JAR.getAbsolutePath(),
-                    "-i",
-                    repoDir.getAbsolutePath(),
-                    "-o",
-                    resultsDirectory.getAbsolutePath(),
-                    "-f",
-                    "csv"
-            );
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
-
-            if (exitCode != 0) {
-                System.err.println("Designite exited with an error: " + exitCode);
-            } else {
-                System.out.println("Designite analysis completed successfully");
+            try {
+                ProcessResult result = designiteHosts.run(designiteArgs, logFile, timeout);
+                // the host wrote the log, its tail is read back for the report
+                if (result.exitCode() != 0 && logFile.exists()) {
+                    result = result.withOutputTail(OutputPump.readTail(logFile));
+                }
+                return reportDesigniteResult(baseOutputDirectory, result);
+            } catch (IOException e) {
+                System.err.println("Designite tool host failed, running Designite in a new JVM: " + e.getMessage());
+            }
+            // the scheduler reserves no memory for Designite when it runs in tool hosts
+            memoryBudget.reserve(memoryMb);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StageResult.withoutProcess(false);
+        }
+        try {
+            return runDesignite(designiteArgs, baseOutputDirectory, logFile, memoryMb, timeout);
+        } finally {
+            memoryBudget.release(memoryMb);
+        }
+    }
+
+    private static StageResult runDesignite(List<String> designiteArgs, File baseOutputDirectory, File logFile, int memoryMb, Duration timeout) {
+        ClassDataSharing.Launch launch = CLASS_DATA_SHARING.prepare("designite", "java", List.of(DESIGNITE_JAR.toPath()));
+        List<String> command = new ArrayList<>(List.of("java", "-Xmx" + memoryMb + "m"));
+        command.addAll(launch.getJvmOptions());
+        command.addAll(List.of("-jar", DESIGNITE_JAR.getAbsolutePath()));
+        command.addAll(designiteArgs);
+        launch.started();
+        // the first output marks the end of the JVM's startup, the time class data sharing saves
+        ProcessResult result = CommandRunner.run(new ProcessBuilder(command), logFile, timeout, () -> CLASS_DATA_SHARING.logTime(launch, "startup"));
+        CLASS_DATA_SHARING.exited(launch);
+        return reportDesigniteResult(baseOutputDirectory, result);
+    }
+
+    private static StageResult reportDesigniteResult(File baseOutputDirectory, ProcessResult result) {
+        RunReport.record(baseOutputDirectory, AnalysisTool.DESIGNITE.name(), result);
+        return StageResult.of(result);
+    }
+
+    // builds write target directories, so stored snapshots are built in a workspace that is discarded afterwards
+    private StageResult buildInWorkspace(File snapshot, File baseOutputDirectory, int memoryMb, SnapshotInputs inputs) {
+        Path workspaceDirectory = Path.of(WORKSPACE_DIRECTORY);
+        MemoryBudget memoryBudget = scheduler.getMemoryBudget();
+        int workspaceMb = 0;
+        try {
+            if (SnapshotWorkspace.isInMemory(workspaceDirectory)) {
+                workspaceMb = (int) Math.ceil(SnapshotWorkspace.measure(snapshot.toPath()) / (1024.0 * 1024.0));
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not measure the workspace of snapshot %s: %s%n", snapshot.getName(), e.getMessage());
+            return StageResult.withoutProcess(false);
+        }
+
+        // the stage holds the build's memory already, a workspace that cannot fit next to it would wait forever
+        if (workspaceMb > memoryBudget.getBudgetMb() - memoryMb) {
+            System.out.printf("Workspace of %s needs %d MB and does not fit in memory, creating it in the scratch directory%n", snapshot.getName(), workspaceMb);
+            workspaceDirectory = Path.of(SCRATCH_DIRECTORY, "asat-workspaces");
+            workspaceMb = 0;
+        }
+
+        try {
+            memoryBudget.reserve(workspaceMb);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StageResult.withoutProcess(false);
+        }
+        try {
+            Path workspace;
+            try {
+                workspace = SnapshotWorkspace.create(snapshot.toPath(), workspaceDirectory, WORKSPACE_HARD_LINKS);
+            } catch (IOException e) {
+                System.err.printf("Could not create a workspace for snapshot %s: %s%n", snapshot.getName(), e.getMessage());
+                return StageResult.withoutProcess(false);
             }
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error running Designite: " + e.getMessage());
-            System.exit(1);
+
+            try {
+                return buildProjectAndGenerateReport(workspace.toFile(), baseOutputDirectory, memoryMb, inputs);
+            } finally {
+                try {
+                    SnapshotWorkspace.delete(workspace);
+                } catch (IOException e) {
+                    System.err.printf("Could not delete workspace %s: %s%n", workspace, e.getMessage());
+                }
+            }
+        } finally {
+            memoryBudget.release(workspaceMb);
         }
     }
 
-    private static void buildProjectAndGenerateReport(File repoDir, File baseOutputDirectory) {
-        String command1 = String.format("%s clean test -DfailIfNoTests=false -Dsurefire.failIfNoSpecifiedTests=false -Dmaven.test.failure.ignore=true -Djacoco.skip=false -Djacoco.dataFile=target/jacoco.exec -DargLine=\"-javaagent:%s=destfile=target/jacoco.exec\"", PLATFORM.getMvnCommand(), JACOCO_AGENT_PATH);
-        CommandRunner.runTestCommand(command1, repoDir, new File(baseOutputDirectory, "testdata.csv"));
+    // the exit code is the build's, or none if the results of all modules were reused
+    private StageResult buildProjectAndGenerateReport(File repoDir, File baseOutputDirectory, int memoryMb, SnapshotInputs inputs) {
+        MavenReactor reactor = MavenReactor.scan(repoDir);
+        List<File> modules = reactor.getModuleDirectories();
+        Map<File, String> fingerprints = getModuleFingerprints(repoDir, reactor, inputs);
+        Set<File> changedModules = new HashSet<>(modules);
+        if (fingerprints != null) {
+            changedModules.removeIf(module -> resultCache.hasModule(fingerprints.get(module)));
+        }
+
+        Integer exitCode = null;
+        if (fingerprints == null || changedModules.size() == modules.size()) {
+            exitCode = runTests(repoDir, baseOutputDirectory, memoryMb, null);
+        } else if (!changedModules.isEmpty()) {
+            // the changed modules are tested with the modules depending on them, the modules they depend on are only built
+            String projects = changedModules.stream().map(module -> ModuleFingerprints.getRelativePath(repoDir, module)).sorted().collect(Collectors.joining(","));
+            System.out.printf("Rebuilding %d of %d modules of %s%n", changedModules.size(), modules.size(), baseOutputDirectory.getName());
+            exitCode = runTests(repoDir, baseOutputDirectory, memoryMb, projects);
+        } else {
+            System.out.printf("Reusing the test results of all %d modules of %s%n", modules.size(), baseOutputDirectory.getName());
+        }
 
-        List<File> modules = findModules(repoDir, new ArrayList<>());
         File resultsDirectory = new File(baseOutputDirectory, "JacocoResults");
         if (!resultsDirectory.exists()) {
             resultsDirectory.mkdirs();
         }
 
-        for (File module : modules) {
+        // the project is a module of the reactor when it has sources; a project without pom reports its tests only
+        List<File> testedDirectories = new ArrayList<>(modules);
+        if (modules.isEmpty()) {
+            testedDirectories.add(repoDir);
+        }
+
+        // reports are created in-process, one module per thread
+        JacocoReporter jacocoReporter = new JacocoReporter();
+        Map<File, List<TestCase>> moduleTestCases = new ConcurrentHashMap<>();
+        boolean storeModules = exitCode == null || exitCode == 0;
+        testedDirectories.parallelStream().forEach(module -> {
+            // the project's directory is named after the snapshot or workspace, its report after its role
+            String moduleName = module.equals(repoDir) ? "root" : module.getName();
+            File moduleReportFile = new File(resultsDirectory, moduleName + ".csv");
+            if (modules.contains(module) && !changedModules.contains(module)) {
+                try {
+                    moduleTestCases.put(module, resultCache.restoreModule(fingerprints.get(module), module, moduleReportFile));
+                } catch (IOException e) {
+                    System.err.printf("Could not restore cached results of module %s: %s%n", moduleName, e.getMessage());
+                }
+                return;
+            }
+
             File jacocoExecFile = new File(module, "target/jacoco.exec");
-            if (jacocoExecFile.exists()) {
-                String moduleName = module.getName();
-                File moduleReportFile = new File(resultsDirectory, moduleName + ".csv");
+            if (modules.contains(module) && jacocoExecFile.exists()) {
+                try {
+                    MavenReactor.Module reactorModule = reactor.getModule(module);
+                    jacocoReporter.writeCsvReport(jacocoExecFile, reactorModule.classesDirectory(), reactorModule.sourceDirectory(), moduleReportFile);
+                } catch (IOException e) {
+                    System.err.printf("Could not create JaCoCo report for module %s: %s%n", moduleName, e.getMessage());
+                }
+            }
 
-                String reportCommand = String.format("java -jar %s report %s --classfiles %s --sourcefiles %s --csv %s", JACOCO_CLI_PATH, jacocoExecFile.getAbsolutePath(), new File(module, "target/classes").getAbsolutePath(), new File(module, "src/main/java").getAbsolutePath(), moduleReportFile.getAbsolutePath());
-                CommandRunner.runStandardCommand(reportCommand, module);
+            try {
+                List<TestCase> testCases = SurefireReports.read(module);
+                moduleTestCases.put(module, testCases);
+                if (fingerprints != null && storeModules && modules.contains(module)) {
+                    resultCache.storeModule(fingerprints.get(module), module, moduleReportFile, testCases);
+                }
+            } catch (IOException e) {
+                System.err.printf("Could not read the test reports of module %s: %s%n", moduleName, e.getMessage());
             }
+        });
+
+        if (moduleTestCases.size() < testedDirectories.size() || !writeTestResults(repoDir, baseOutputDirectory, testedDirectories, moduleTestCases)) {
+            return new StageResult(false, exitCode);
         }
+        return new StageResult(exitCode == null || exitCode == 0, exitCode);
     }
 
-    private static List<File> findModules(File repoDir, List<File> modules) {
-        File pomFile = new File(repoDir, "pom.xml");
-        try {
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+    private static boolean writeTestResults(File repoDir, File baseOutputDirectory, List<File> testedDirectories, Map<File, List<TestCase>> moduleTestCases) {
+        Map<String, List<TestCase>> testCasesByModule = new LinkedHashMap<>();
+        for (File module : testedDirectories) {
+            String modulePath = ModuleFingerprints.getRelativePath(repoDir, module);
+            testCasesByModule.put(modulePath.isEmpty() ? "." : modulePath, moduleTestCases.get(module));
+        }
 
-            if (!pomFile.exists()) return modules;
+        try {
+            List<TestCase> testCases = testCasesByModule.values().stream().flatMap(List::stream).toList();
+            TestCounts.of(testCases).writeTestData(new File(baseOutputDirectory, "testdata.csv"));
+            SurefireReports.writeTestCases(new File(baseOutputDirectory, "testcases.csv"), testCasesByModule);
+            SurefireReports.writeModuleTotals(new File(baseOutputDirectory, "testmodules.csv"), testCasesByModule);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not write test results: " + e.getMessage());
+            return false;
+        }
+    }
 
-            Document doc = dBuilder.parse(pomFile);
-            doc.getDocumentElement().normalize();
+    // module results are only reused for multi-module projects whose root has no sources of its own
+    // a module of an inactive profile is not part of the reactor Maven builds, so it cannot be selected with -pl
+    private Map<File, String> getModuleFingerprints(File repoDir, MavenReactor reactor, SnapshotInputs inputs) {
+        if (inputs == null || reactor.getModuleDirectories().isEmpty() || reactor.hasProfileModules() || reactor.getModule(repoDir) != null) {
+            return null;
+        }
+        return resultCache.getModuleFingerprints(repoDir, reactor, inputs);
+    }
 
-            NodeList nodeList = doc.getElementsByTagName("module");
+    /**
+     * The Maven command that runs the tests of a project with the JaCoCo agent and the given heap for the JVM Surefire
+     * forks; the argLine is a single argument holding both JVM options.
+     */
+    static List<String> getTestCommand(String mvnCommand, int testHeapMb, String jacocoAgentPath) {
+        return List.of(mvnCommand, "clean", "test", "-DfailIfNoTests=false", "-Dsurefire.failIfNoSpecifiedTests=false", "-Dmaven.test.failure.ignore=true",
+                "-Djacoco.skip=false", "-Djacoco.dataFile=target/jacoco.exec",
+                "-DargLine=-Xmx" + testHeapMb + "m -javaagent:" + jacocoAgentPath + "=destfile=target/jacoco.exec");
+    }
 
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node node = nodeList.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    String moduleName = element.getTextContent();
-                    File moduleDir = new File(repoDir, moduleName);
+    /**
+     * The Maven commands that test the selected modules and the modules depending on them. The first installs these
+     * modules and the modules they depend on without running tests, the second tests them against what it installed,
+     * so the tests of unchanged upstream modules are not run again.
+     */
+    static List<List<String>> getPartialTestCommands(String mvnCommand, int testHeapMb, String jacocoAgentPath, String projects) {
+        List<String> install = List.of(mvnCommand, "clean", "install", "-DskipTests", "-Djacoco.skip=true", "-Dgpg.skip=true", "-Dmaven.javadoc.skip=true",
+                "-pl", projects, "-am", "-amd");
+        // the classes the install pass compiled are kept
+        List<String> test = new ArrayList<>(getTestCommand(mvnCommand, testHeapMb, jacocoAgentPath));
+        test.remove("clean");
+        test.addAll(List.of("-pl", projects, "-amd"));
+        return List.of(install, test);
+    }
 
-                    if (!moduleDir.exists()) break;
-                    if (!modules.contains(moduleDir)) modules.add(moduleDir);
+    // the projects are the selected modules of a partial build, or null to build the whole project
+    private int runTests(File repoDir, File baseOutputDirectory, int memoryMb, String projects) {
+        List<List<String>> commands = projects == null ? List.of(getTestCommand(PLATFORM.getMvnCommand(), getTestHeapMb(memoryMb), JACOCO_AGENT_PATH))
+                : getPartialTestCommands(PLATFORM.getMvnCommand(), getTestHeapMb(memoryMb), JACOCO_AGENT_PATH, projects);
+        if (dependencyResolver == null) {
+            return projects == null ? runMaven(commands, List.of(), repoDir, baseOutputDirectory, memoryMb).exitCode()
+                    : runInInstallRepository(commands, repoDir, baseOutputDirectory, memoryMb);
+        }
 
-                    // recursively add all submodules
-                    findModules(moduleDir, modules);
+        try {
+            // resolved before the stage was scheduled, so this only looks the resolution up
+            if (dependencyResolver.awaitResolution(repoDir, baseOutputDirectory)) {
+                // a partial build installs modules, so it never builds in the shared repository, not even offline
+                ProcessResult result = projects == null
+                        ? runMaven(commands, withArguments(dependencyResolver.getMavenOptions(), List.of("-o")), repoDir, baseOutputDirectory, memoryMb)
+                        : runInPrivateRepository(commands, List.of("-o"), repoDir, baseOutputDirectory, memoryMb);
+                // go-offline misses artifacts resolved while building, such as the Surefire test providers
+                if (result.exitCode() == 0 || result.outputTail().stream().noneMatch(line -> line.contains("in offline mode"))) {
+                    return result.exitCode();
                 }
+                System.out.println("Offline build of " + baseOutputDirectory.getName() + " lacks artifacts, building online");
             }
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
         }
-        return modules;
+        return runInPrivateRepository(commands, List.of(), repoDir, baseOutputDirectory, memoryMb).exitCode();
     }
 
-    private static void analyzeWithDV8(File repoDir, File baseOutputDir) {
+    // builds run at the same time, so each downloads and installs into a private repository, which the resolver merges
+    // into the shared one without the installed modules; this keeps a single writer
+    private ProcessResult runInPrivateRepository(List<List<String>> commands, List<String> options, File repoDir, File baseOutputDirectory, int memoryMb) {
+        Path privateRepository;
+        try {
+            privateRepository = dependencyResolver.createPrivateRepository();
+        } catch (IOException e) {
+            System.err.printf("Could not create a private Maven repository for %s: %s%n", baseOutputDirectory.getName(), e.getMessage());
+            return ProcessResult.failed(Instant.now());
+        }
+
+        ProcessResult result = runMaven(commands, withArguments(dependencyResolver.getMavenOptions(privateRepository), options), repoDir, baseOutputDirectory, memoryMb);
+        dependencyResolver.merge(privateRepository);
+        return result;
+    }
+
+    // without shared repository, the modules are installed into a repository of the build that reads the user's
+    // repository behind it, so snapshots built at the same time never see each other's modules
+    private static int runInInstallRepository(List<List<String>> commands, File repoDir, File baseOutputDirectory, int memoryMb) {
+        Path installRepository;
+        try {
+            installRepository = Files.createTempDirectory(Files.createDirectories(Path.of(SCRATCH_DIRECTORY)), "maven-repository-");
+        } catch (IOException e) {
+            System.err.printf("Could not create a Maven repository for %s: %s%n", baseOutputDirectory.getName(), e.getMessage());
+            return -1;
+        }
+
+        try {
+            List<String> options = List.of("-Dmaven.repo.local=" + installRepository, "-Dmaven.repo.local.tail=" + USER_MAVEN_REPOSITORY);
+            return runMaven(commands, options, repoDir, baseOutputDirectory, memoryMb).exitCode();
+        } finally {
+            try {
+                SnapshotWorkspace.delete(installRepository);
+            } catch (IOException e) {
+                System.err.printf("Could not delete Maven repository %s: %s%n", installRepository, e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> withArguments(List<String> command, List<String> arguments) {
+        List<String> extended = new ArrayList<>(command);
+        extended.addAll(arguments);
+        return extended;
+    }
+
+    // the commands run one after another until one fails; all but the last only prepare the test run
+    private static ProcessResult runMaven(List<List<String>> commands, List<String> options, File repoDir, File baseOutputDirectory, int memoryMb) {
+        ProcessResult result = null;
+        for (int i = 0; i < commands.size(); i++) {
+            boolean testRun = i == commands.size() - 1;
+            result = runMaven(withArguments(commands.get(i), options), testRun ? AnalysisTool.TESTS.name() : "INSTALL",
+                    new File(baseOutputDirectory, testRun ? "maven.log.gz" : "install.log.gz"), repoDir, baseOutputDirectory, memoryMb);
+            if (result.exitCode() != 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static ProcessResult runMaven(List<String> command, String stage, File logFile, File repoDir, File baseOutputDirectory, int memoryMb) {
+        ClassDataSharing.Launch launch = CLASS_DATA_SHARING.prepare("maven", ClassDataSharing.getMavenJavaCommand(), ClassDataSharing.findMavenClasspath(PLATFORM.getMvnCommand()));
+        String mavenOpts = String.join(" ", launch.getJvmOptions()) + " -Xmx" + getMavenHeapMb(memoryMb) + "m";
+        launch.started();
+        ProcessResult result = CommandRunner.runTestCommand(command, repoDir, logFile, Map.of("MAVEN_OPTS", mavenOpts.trim()),
+                Duration.ofMinutes(TEST_TIMEOUT_MINUTES), () -> CLASS_DATA_SHARING.logTime(launch, "startup"));
+        CLASS_DATA_SHARING.exited(launch);
+        RunReport.record(baseOutputDirectory, stage, result);
+        return result;
+    }
+
+    // the reservation covers Maven and the JVM Surefire forks for the tests, which needs most of it
+    private static int getMavenHeapMb(int memoryMb) {
+        return memoryMb / 4;
+    }
+
+    private static int getTestHeapMb(int memoryMb) {
+        return memoryMb - getMavenHeapMb(memoryMb);
+    }
+
+    private static StageResult analyzeModularity(File repoDir, File baseOutputDirectory) {
+        Instant start = Instant.now();
+        File resultsDirectory = new File(baseOutputDirectory, "ModularityResults");
+        try {
+            SourceDependencyGraph graph = SourceDependencyGraph.read(repoDir.toPath());
+            ModularityMetrics metrics = ModularityMetrics.of(graph);
+            Files.createDirectories(resultsDirectory.toPath());
+            metrics.write(new File(resultsDirectory, "modularity.csv"));
+            System.out.printf(Locale.US, "MODULARITY %s/%s: %d files, %d dependencies after %.2f s%n", baseOutputDirectory.getParentFile().getName(),
+                    baseOutputDirectory.getName(), metrics.files(), metrics.dependencies(), Duration.between(start, Instant.now()).toMillis() / 1000.0);
+            return StageResult.withoutProcess(true);
+        } catch (IOException e) {
+            System.err.printf("Could not analyze the modularity of %s: %s%n", baseOutputDirectory.getName(), e.getMessage());
+            return StageResult.withoutProcess(false);
+        }
+    }
+
+    private static StageResult analyzeWithDV8(File repoDir, File baseOutputDir) {
         Properties properties = new Properties();
         String resultFolder = "DV8Results";
 
@@ -185,19 +790,20 @@ public class SnapshotAnalyzer {
             propertiesFile = File.createTempFile("config", ".properties");
         } catch (IOException e) {
             System.err.println("Error while creating the temporary properties file: " + e.getMessage());
-            return;
+            return StageResult.withoutProcess(false);
         }
 
         // Write the properties to the file
         try (FileOutputStream outputStream = new FileOutputStream(propertiesFile)) {
             properties.store(outputStream, "This is a sample properties file");
-            System.out.println("Properties file created successfully.");
         } catch (IOException e) {
             System.err.println("Error while writing to the properties file: " + e.getMessage());
         }
 
         String command = String.format("%s arch-report -paramsFile %s", DV8_CONSOLE, propertiesFile.getAbsolutePath());
 
-        CommandRunner.runStandardCommand(command, repoDir);
+        ProcessResult result = CommandRunner.runStandardCommand(command, repoDir, new File(baseOutputDir, "dv8.log.gz"), Duration.ofMinutes(DV8_TIMEOUT_MINUTES));
+        RunReport.record(baseOutputDir, AnalysisTool.DV8.name(), result);
+        return StageResult.of(result);
     }
 }
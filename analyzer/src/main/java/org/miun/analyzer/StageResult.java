@@ -0,0 +1,18 @@
+package org.miun.analyzer;
+
+import org.miun.analyzer.support.ProcessResult;
+
+/**
+ * Whether a stage of a snapshot's analysis succeeded and the exit code of the process it ran, which is null if the
+ * stage ran no process, e.g. when its results were restored from the cache.
+ */
+public record StageResult(boolean succeeded, Integer exitCode) {
+
+    public static StageResult of(ProcessResult result) {
+        return new StageResult(result.exitCode() == 0, result.exitCode());
+    }
+
+    public static StageResult withoutProcess(boolean succeeded) {
+        return new StageResult(succeeded, null);
+    }
+}
@@ -0,0 +1,54 @@
+package org.miun.analyzer.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+public class Checksums {
+
+    public static String sha256(String value) {
+        return HexFormat.of().formatHex(newDigest("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String sha256(List<Path> files) throws IOException {
+        MessageDigest digest = newDigest("SHA-256");
+        for (Path file : files) {
+            update(digest, file);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The id git gives the file's content as a blob, so hashed files compare equal to the ids of a snapshot manifest.
+     */
+    public static String gitBlobId(Path file) throws IOException {
+        MessageDigest digest = newDigest("SHA-1");
+        digest.update(("blob " + Files.size(file) + "\0").getBytes(StandardCharsets.UTF_8));
+        update(digest, file);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.miun.analyzer.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Dynamic class data sharing archives for the forked tool JVMs. The first launch of a tool records its loaded classes
+ * with -XX:ArchiveClassesAtExit, later launches map them with -XX:SharedArchiveFile. Archives are keyed by the checksum
+ * of the tool's jars and the version of the JDK that runs it, so a changed jar or JDK gets a new archive.
+ */
+public class ClassDataSharing {
+    // dynamic archives exist since JDK 13
+    private static final int MIN_JAVA_VERSION = 13;
+    private static final Pattern VERSION_PATTERN = Pattern.compile("version \"(\\d+)(?:\\.(\\d+))?");
+
+    private final Path archiveDirectory;
+    private final boolean enabled;
+    private final Map<String, String> javaVersions = new ConcurrentHashMap<>();
+    private final Map<List<Path>, String> checksums = new ConcurrentHashMap<>();
+    private final Map<String, long[]> timings = new TreeMap<>();
+
+    public ClassDataSharing(Path archiveDirectory, boolean enabled) {
+        this.archiveDirectory = archiveDirectory;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Decides how the next launch of a tool uses its archive. Without a usable archive or JDK the launch gets no options.
+     */
+    public Launch prepare(String tool, String javaCommand, List<Path> classpath) {
+        if (!enabled || classpath.isEmpty()) {
+            return new Launch(tool, ArchiveUse.NONE, null, null);
+        }
+
+        try {
+            String javaVersion = getJavaVersion(javaCommand);
+            if (javaVersion.isEmpty()) {
+                return new Launch(tool, ArchiveUse.NONE, null, null);
+            }
+
+            String key = Checksums.sha256(getChecksum(classpath) + javaVersion).substring(0, 16);
+            Path archive = archiveDirectory.resolve(tool + "-" + key + ".jsa");
+            if (Files.isRegularFile(archive)) {
+                return new Launch(tool, ArchiveUse.SHARED, archive, null);
+            }
+
+            Files.createDirectories(archiveDirectory);
+            Path tempArchive = archiveDirectory.resolve(tool + "-" + key + "-" + UUID.randomUUID() + ".jsa.tmp");
+            return new Launch(tool, ArchiveUse.CREATED, archive, tempArchive);
+        } catch (IOException e) {
+            System.err.printf("Class data sharing is not used for %s: %s%n", tool, e.getMessage());
+            return new Launch(tool, ArchiveUse.NONE, null, null);
+        }
+    }
+
+    /**
+     * Records how long a launch took to reach the given phase, e.g. until the tool was ready or until it exited.
+     * The times are reported as averages by {@link #printSummary()}.
+     */
+    public void logTime(Launch launch, String phase) {
+        long elapsedNanos = System.nanoTime() - launch.startTime;
+
+        synchronized (timings) {
+            long[] timing = timings.computeIfAbsent(launch.tool + " " + phase + " (" + launch.archiveUse.getDescription() + ")", k -> new long[2]);
+            timing[0]++;
+            timing[1] += elapsedNanos;
+        }
+    }
+
+    /**
+     * Installs the archive a launch recorded once its JVM has exited, replacing archives of older jars or JDKs.
+     */
+    public void exited(Launch launch) {
+        if (launch.archiveUse != ArchiveUse.CREATED || !Files.isRegularFile(launch.tempArchive)) {
+            return;
+        }
+
+        try {
+            Files.move(launch.tempArchive, launch.archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            try (Stream<Path> paths = Files.list(archiveDirectory)) {
+                for (Path path : paths.filter(path -> isOutdatedArchive(path, launch)).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.printf("Could not store class data sharing archive of %s: %s%n", launch.tool, e.getMessage());
+        }
+    }
+
+    public void printSummary() {
+        synchronized (timings) {
+            timings.forEach((key, timing) -> System.out.printf(Locale.US, "%s: %d launches, %.2f s on average%n", key, timing[0], timing[1] / (double) timing[0] / 1_000_000_000.0));
+        }
+    }
+
+    private static boolean isOutdatedArchive(Path path, Launch launch) {
+        String name = path.getFileName().toString();
+        return name.matches(Pattern.quote(launch.tool) + "-[0-9a-f]{16}\\.jsa") && !path.equals(launch.archive);
+    }
+
+    // an empty version means the JDK cannot create dynamic archives
+    private String getJavaVersion(String javaCommand) throws IOException {
+        String cached = javaVersions.get(javaCommand);
+        if (cached != null) {
+            return cached;
+        }
+
+        Process process = new ProcessBuilder(javaCommand, "-version").redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        }
+
+        Matcher matcher = VERSION_PATTERN.matcher(output);
+        int majorVersion = 0;
+        if (matcher.find()) {
+            // versions before 9 are reported as 1.x
+            majorVersion = matcher.group(1).equals("1") && matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : Integer.parseInt(matcher.group(1));
+        }
+
+        String javaVersion = majorVersion >= MIN_JAVA_VERSION ? output.toString() : "";
+        javaVersions.put(javaCommand, javaVersion);
+        return javaVersion;
+    }
+
+    private String getChecksum(List<Path> classpath) throws IOException {
+        String cached = checksums.get(classpath);
+        if (cached != null) {
+            return cached;
+        }
+
+        String checksum = Checksums.sha256(classpath);
+        checksums.put(classpath, checksum);
+        return checksum;
+    }
+
+    /**
+     * The jars of the Maven installation on the PATH, or an empty list if Maven cannot be found.
+     */
+    public static List<Path> findMavenClasspath(String mvnCommand) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return List.of();
+        }
+
+        for (String directory : path.split(File.pathSeparator)) {
+            Path mvn = Path.of(directory, mvnCommand);
+            if (!Files.isRegularFile(mvn)) {
+                continue;
+            }
+
+            try {
+                Path mavenHome = mvn.toRealPath().getParent().getParent();
+                List<Path> jars = new ArrayList<>();
+                for (String jarDirectory : List.of("boot", "lib")) {
+                    Path jarPath = mavenHome.resolve(jarDirectory);
+                    if (Files.isDirectory(jarPath)) {
+                        try (Stream<Path> paths = Files.list(jarPath)) {
+                            paths.filter(jar -> jar.toString().endsWith(".jar")).sorted().forEach(jars::add);
+                        }
+                    }
+                }
+                return jars;
+            } catch (IOException e) {
+                return List.of();
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * The java executable Maven runs on, which is the one in JAVA_HOME if that is set.
+     */
+    public static String getMavenJavaCommand() {
+        String javaHome = System.getenv("JAVA_HOME");
+        return javaHome == null || javaHome.isBlank() ? "java" : Path.of(javaHome, "bin", "java").toString();
+    }
+
+    public enum ArchiveUse {
+        NONE("without archive"),
+        CREATED("creating archive"),
+        SHARED("with archive");
+
+        private final String description;
+
+        ArchiveUse(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    public static class Launch {
+        private final String tool;
+        private final ArchiveUse archiveUse;
+        private final Path archive;
+        private final Path tempArchive;
+        private long startTime = System.nanoTime();
+
+        private Launch(String tool, ArchiveUse archiveUse, Path archive, Path tempArchive) {
+            this.tool = tool;
+            this.archiveUse = archiveUse;
+            this.archive = archive;
+            this.tempArchive = tempArchive;
+        }
+
+        /**
+         * Marks the moment the JVM is started, times are logged relative to it.
+         */
+        public void started() {
+            startTime = System.nanoTime();
+        }
+
+        public List<String> getJvmOptions() {
+            return switch (archiveUse) {
+                case NONE -> List.of();
+                case CREATED -> List.of("-XX:ArchiveClassesAtExit=" + tempArchive);
+                case SHARED -> List.of("-XX:SharedArchiveFile=" + archive);
+            };
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.miun.analyzer.support;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.jacoco.report.DirectorySourceFileLocator;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.csv.CSVFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Creates JaCoCo CSV reports in-process, equal to those of the JaCoCo CLI's report command.
+ * Class files are read once per classes directory and shared by all reports of this reporter.
+ */
+public class JacocoReporter {
+    // the report title the CLI uses, it appears in the GROUP column of the CSV
+    private static final String BUNDLE_NAME = "JaCoCo Coverage Report";
+
+    private final Map<Path, List<ClassFile>> classFiles = new ConcurrentHashMap<>();
+
+    public void writeCsvReport(File execFile, File classesDirectory, File sourceDirectory, File csvFile) throws IOException {
+        ExecFileLoader execFileLoader = new ExecFileLoader();
+        execFileLoader.load(execFile);
+
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(execFileLoader.getExecutionDataStore(), coverageBuilder);
+        for (ClassFile classFile : getClassFiles(classesDirectory)) {
+            analyzer.analyzeClass(classFile.content(), classFile.location());
+        }
+
+        try (OutputStream outputStream = Files.newOutputStream(csvFile.toPath())) {
+            IReportVisitor reportVisitor = new CSVFormatter().createVisitor(outputStream);
+            reportVisitor.visitInfo(execFileLoader.getSessionInfoStore().getInfos(), execFileLoader.getExecutionDataStore().getContents());
+            reportVisitor.visitBundle(coverageBuilder.getBundle(BUNDLE_NAME), new DirectorySourceFileLocator(sourceDirectory, null, 4));
+            reportVisitor.visitEnd();
+        }
+    }
+
+    private List<ClassFile> getClassFiles(File classesDirectory) throws IOException {
+        if (!classesDirectory.isDirectory()) {
+            return List.of();
+        }
+
+        Path key = classesDirectory.toPath().toRealPath();
+        List<ClassFile> cached = classFiles.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<ClassFile> loaded = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(key)) {
+            for (Path path : paths.filter(path -> path.toString().endsWith(".class")).toList()) {
+                loaded.add(new ClassFile(Files.readAllBytes(path), path.toString()));
+            }
+        }
+        List<ClassFile> previous = classFiles.putIfAbsent(key, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    private record ClassFile(byte[] content, String location) {
+    }
+}
@@ -0,0 +1,234 @@
+package org.miun.analyzer.support;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The modules of a Maven reactor, with their source and class directories and the reactor modules each depends on.
+ * Poms are read with a streaming parser that keeps only the elements needed here, and are remembered by their content
+ * hash, so the unchanged poms of later snapshots are not parsed again. The project itself is the first module when it
+ * has sources of its own, as single-module projects do. Modules declared in profiles are included, whether the profile
+ * is active or not, and declared modules that do not exist are skipped.
+ */
+public class MavenReactor {
+    private static final Map<String, Pom> PARSED_POMS = new ConcurrentHashMap<>();
+
+    private final Map<File, Module> modules;
+    private final Map<File, List<File>> upstreamModules = new HashMap<>();
+
+    /**
+     * A module of the reactor. The directories are those of the module's own build section or Maven's defaults.
+     */
+    public record Module(File directory, String artifactId, boolean inProfile, File sourceDirectory, File classesDirectory, List<String> references) {
+    }
+
+    // what the reactor needs of a pom, with paths as they are written in it
+    private record Pom(String artifactId, String parentArtifactId, List<String> modules, List<String> profileModules,
+                       List<String> dependencies, String buildDirectory, String sourceDirectory, String outputDirectory) {
+    }
+
+    private MavenReactor(Map<File, Module> modules) {
+        this.modules = modules;
+        findUpstreamModules();
+    }
+
+    /**
+     * Scans the project and the modules below its pom, the modules of each module in parallel. A project without pom has no modules.
+     */
+    public static MavenReactor scan(File projectDirectory) {
+        File pomFile = new File(projectDirectory, "pom.xml");
+        Map<File, Module> modules = new LinkedHashMap<>();
+        if (pomFile.isFile()) {
+            Pom pom = readPom(pomFile);
+            Module project = toModule(projectDirectory, pom, false);
+            if (new File(projectDirectory, "src").isDirectory() || project.sourceDirectory().isDirectory()) {
+                modules.put(projectDirectory, project);
+            }
+            // a module declared twice, e.g. in the project and in a profile, is kept where it is declared first
+            scanModules(pomFile, pom, false, Set.of(getKey(projectDirectory)))
+                    .forEachOrdered(module -> modules.putIfAbsent(module.directory(), module));
+        }
+        return new MavenReactor(modules);
+    }
+
+    /**
+     * The module directories in the order they are declared, depth first, after the project's directory if it is a module.
+     */
+    public List<File> getModuleDirectories() {
+        return List.copyOf(modules.keySet());
+    }
+
+    public Module getModule(File moduleDirectory) {
+        return modules.get(moduleDirectory);
+    }
+
+    /**
+     * The reactor modules the module depends on, including its parent.
+     */
+    public List<File> getUpstreamModules(File moduleDirectory) {
+        return upstreamModules.get(moduleDirectory);
+    }
+
+    public boolean hasProfileModules() {
+        return modules.values().stream().anyMatch(Module::inProfile);
+    }
+
+    private static Stream<Module> scanModules(File pomFile, Pom pom, boolean inProfile, Set<Path> ancestors) {
+        List<Map.Entry<String, Boolean>> declaredModules = new ArrayList<>();
+        pom.modules().forEach(module -> declaredModules.add(Map.entry(module, inProfile)));
+        pom.profileModules().forEach(module -> declaredModules.add(Map.entry(module, true)));
+
+        File directory = pomFile.getParentFile();
+        return declaredModules.parallelStream().flatMap(declaredModule -> {
+            // a module is a directory with a pom.xml or the path of a pom with another name
+            File moduleFile = new File(directory, declaredModule.getKey().trim());
+            File modulePom = moduleFile.isDirectory() ? new File(moduleFile, "pom.xml") : moduleFile;
+            if (!modulePom.isFile()) {
+                System.err.printf("Module %s declared in %s does not exist, skipping it%n", declaredModule.getKey(), pomFile);
+                return Stream.empty();
+            }
+
+            File moduleDirectory = modulePom.toPath().normalize().getParent().toFile();
+            Path key = getKey(moduleDirectory);
+            if (ancestors.contains(key)) {
+                return Stream.empty();
+            }
+            Set<Path> moduleAncestors = Stream.concat(ancestors.stream(), Stream.of(key)).collect(Collectors.toUnmodifiableSet());
+
+            Pom modulePomContent = readPom(modulePom);
+            Module module = toModule(moduleDirectory, modulePomContent, declaredModule.getValue());
+            return Stream.concat(Stream.of(module), scanModules(modulePom, modulePomContent, declaredModule.getValue(), moduleAncestors));
+        });
+    }
+
+    private static Module toModule(File moduleDirectory, Pom pom, boolean inProfile) {
+        List<String> references = new ArrayList<>();
+        if (pom.parentArtifactId() != null) {
+            references.add(pom.parentArtifactId());
+        }
+        references.addAll(pom.dependencies());
+
+        Path directory = moduleDirectory.toPath().toAbsolutePath();
+        Path buildDirectory = resolve(directory, pom.buildDirectory(), directory.resolve("target"), null);
+        Path sourceDirectory = resolve(directory, pom.sourceDirectory(), directory.resolve("src/main/java"), buildDirectory);
+        Path classesDirectory = resolve(directory, pom.outputDirectory(), buildDirectory.resolve("classes"), buildDirectory);
+        return new Module(moduleDirectory, pom.artifactId() == null ? "" : pom.artifactId(), inProfile, sourceDirectory.toFile(), classesDirectory.toFile(), references);
+    }
+
+    // only the base directory and the build directory are resolved, paths with other properties fall back to the default
+    private static Path resolve(Path moduleDirectory, String path, Path defaultPath, Path buildDirectory) {
+        if (path == null || path.isBlank()) {
+            return defaultPath;
+        }
+        path = path.trim().replace("${project.basedir}", moduleDirectory.toString()).replace("${basedir}", moduleDirectory.toString());
+        if (buildDirectory != null) {
+            path = path.replace("${project.build.directory}", buildDirectory.toString());
+        }
+        return path.contains("${") ? defaultPath : moduleDirectory.resolve(path).normalize();
+    }
+
+    private static Path getKey(File directory) {
+        return directory.toPath().toAbsolutePath().normalize();
+    }
+
+    // an unreadable pom is a module without modules of its own, Maven reports the problem when it builds
+    private static Pom readPom(File pomFile) {
+        try {
+            String hash = Checksums.sha256(List.of(pomFile.toPath()));
+            Pom pom = PARSED_POMS.get(hash);
+            if (pom == null) {
+                pom = parsePom(pomFile);
+                PARSED_POMS.put(hash, pom);
+            }
+            return pom;
+        } catch (IOException | XMLStreamException e) {
+            System.err.printf("Could not read %s: %s%n", pomFile, e.getMessage());
+            return new Pom(null, null, List.of(), List.of(), List.of(), null, null, null);
+        }
+    }
+
+    private static Pom parsePom(File pomFile) throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        Map<String, String> values = new HashMap<>();
+        List<String> modules = new ArrayList<>();
+        List<String> profileModules = new ArrayList<>();
+        List<String> dependencies = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+
+        try (InputStream inputStream = Files.newInputStream(pomFile.toPath())) {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        path.remove(path.size() - 1);
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    path.add(reader.getLocalName());
+                    String elementPath = String.join("/", path);
+                    switch (elementPath) {
+                        case "project/modules/module" -> modules.add(readText(reader, path));
+                        case "project/profiles/profile/modules/module" -> profileModules.add(readText(reader, path));
+                        case "project/dependencies/dependency/artifactId", "project/profiles/profile/dependencies/dependency/artifactId" -> dependencies.add(readText(reader, path));
+                        case "project/artifactId", "project/parent/artifactId", "project/build/directory", "project/build/sourceDirectory", "project/build/outputDirectory" -> values.put(elementPath, readText(reader, path));
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        return new Pom(values.get("project/artifactId"), values.get("project/parent/artifactId"), modules, profileModules, dependencies,
+                values.get("project/build/directory"), values.get("project/build/sourceDirectory"), values.get("project/build/outputDirectory"));
+    }
+
+    // reading the text consumes the end of the element
+    private static String readText(XMLStreamReader reader, List<String> path) throws XMLStreamException {
+        String text = reader.getElementText().trim();
+        path.remove(path.size() - 1);
+        return text;
+    }
+
+    // reactor modules are matched by artifact id, the first module declaring an artifact id is used
+    private void findUpstreamModules() {
+        Map<String, File> modulesByArtifactId = new HashMap<>();
+        modules.values().stream().filter(module -> !module.artifactId().isEmpty()).forEach(module -> modulesByArtifactId.putIfAbsent(module.artifactId(), module.directory()));
+
+        for (Module module : modules.values()) {
+            List<File> upstream = new ArrayList<>();
+            for (String artifactId : module.references()) {
+                File upstreamModule = modulesByArtifactId.get(artifactId);
+                if (upstreamModule != null && !upstreamModule.equals(module.directory()) && !upstream.contains(upstreamModule)) {
+                    upstream.add(upstreamModule);
+                }
+            }
+            upstream.sort(Comparator.naturalOrder());
+            upstreamModules.put(module.directory(), upstream);
+        }
+    }
+}
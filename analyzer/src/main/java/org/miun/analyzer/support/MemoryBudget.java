@@ -0,0 +1,50 @@
+package org.miun.analyzer.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The memory in megabytes that the running tools may reserve in total. Resources that keep memory while they are idle,
+ * such as tool hosts, register a reclaimer that releases it; reclaimers run whenever a reservation has to wait.
+ */
+public class MemoryBudget {
+    private static final long RECLAIM_INTERVAL_MS = 1000;
+
+    private final int budgetMb;
+    private final Semaphore permits;
+    private final List<Runnable> reclaimers = new CopyOnWriteArrayList<>();
+
+    public MemoryBudget(int budgetMb) {
+        this.budgetMb = budgetMb;
+        this.permits = new Semaphore(budgetMb, true);
+    }
+
+    public int getBudgetMb() {
+        return budgetMb;
+    }
+
+    public void addReclaimer(Runnable reclaimer) {
+        reclaimers.add(reclaimer);
+    }
+
+    /**
+     * Waits until the memory is free and reserves it. A reservation larger than the whole budget would never fit, it
+     * waits for all memory instead.
+     */
+    public void reserve(int memoryMb) throws InterruptedException {
+        // resources may become idle while the reservation waits, so the reclaimers run again on every retry
+        while (!permits.tryAcquire(cap(memoryMb), RECLAIM_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            reclaimers.forEach(Runnable::run);
+        }
+    }
+
+    public void release(int memoryMb) {
+        permits.release(cap(memoryMb));
+    }
+
+    private int cap(int memoryMb) {
+        return Math.min(memoryMb, budgetMb);
+    }
+}
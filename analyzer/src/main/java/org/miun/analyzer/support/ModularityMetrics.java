@@ -0,0 +1,291 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * The size of a dependency graph with its propagation cost and decoupling level, both in percent.
+ * <p>
+ * Propagation cost is the density of the visibility matrix, the share of file pairs where the first file depends on the
+ * second directly or transitively, each file counting as depending on itself. It is computed on the graph of strongly
+ * connected components, whose reachability rows are built from the rows of the components they depend on; the
+ * components of one level of the graph only depend on lower levels, so their rows are built in parallel.
+ * <p>
+ * Decoupling level is computed on modules grouped like those of a design rule hierarchy. Components that no other
+ * component depends on start the modules of the bottom layer; a component joins the module of its dependents if they
+ * all belong to one module, otherwise it is a design rule and starts a module one layer above the highest module
+ * depending on it. The modules of a layer are thus the weakly connected parts of the layer, and every dependent of a
+ * module lies in a lower layer. A module in the bottom layer is the better decoupled, the smaller it is; a module in
+ * an upper layer, the fewer of the files below its layer depend on it. Design rule hierarchies are built on classes
+ * and DV8 clusters them differently, so the value can differ from DV8's.
+ */
+public record ModularityMetrics(int files, long dependencies, double propagationCost, double decouplingLevel) {
+    // identifies the results in the result cache, to be increased whenever the graph or the metrics change
+    public static final String ENGINE_VERSION = "2";
+
+    public static ModularityMetrics of(SourceDependencyGraph graph) {
+        return of(IntStream.range(0, graph.size()).mapToObj(graph::getDependencies).toArray(int[][]::new));
+    }
+
+    /**
+     * The metrics of the graph given as the indexes of the files each file depends on, without the file itself.
+     */
+    static ModularityMetrics of(int[][] fileDependencies) {
+        int files = fileDependencies.length;
+        if (files == 0) {
+            return new ModularityMetrics(0, 0, 0, 0);
+        }
+
+        int[] componentOfFile = findComponents(fileDependencies);
+        int components = Arrays.stream(componentOfFile).max().orElse(-1) + 1;
+        int[] componentSizes = new int[components];
+        for (int component : componentOfFile) {
+            componentSizes[component]++;
+        }
+        int[][] componentDependencies = getComponentDependencies(fileDependencies, componentOfFile, components);
+        BitSet[] reachable = getReachableComponents(componentDependencies, getLevels(componentDependencies));
+
+        // the files each component's files can reach
+        long[] reachedFiles = new long[components];
+        IntStream.range(0, components).parallel().forEach(component -> {
+            long reached = 0;
+            for (int other = reachable[component].nextSetBit(0); other >= 0; other = reachable[component].nextSetBit(other + 1)) {
+                reached += componentSizes[other];
+            }
+            reachedFiles[component] = reached;
+        });
+
+        double visiblePairs = 0;
+        for (int component = 0; component < components; component++) {
+            visiblePairs += (double) componentSizes[component] * reachedFiles[component];
+        }
+        double propagationCost = visiblePairs / ((double) files * files);
+
+        long dependencies = Arrays.stream(fileDependencies).mapToLong(fileDependency -> fileDependency.length).sum();
+        return new ModularityMetrics(files, dependencies, 100 * propagationCost, 100 * getDecouplingLevel(files, componentSizes, componentDependencies));
+    }
+
+    public void write(File csvFile) throws IOException {
+        Files.writeString(csvFile.toPath(), String.format(Locale.US, "Files,Dependencies,PropagationCost,DecouplingLevel%n%d,%d,%.2f,%.2f%n",
+                files, dependencies, propagationCost, decouplingLevel));
+    }
+
+    private static double getDecouplingLevel(int files, int[] componentSizes, int[][] componentDependencies) {
+        int components = componentSizes.length;
+        int[][] componentDependents = transpose(componentDependencies);
+
+        // components are numbered after their dependencies, so going down from the last one meets all dependents of a
+        // component before the component itself
+        int[] moduleOfComponent = new int[components];
+        List<Integer> moduleLayers = new ArrayList<>();
+        List<Long> moduleFiles = new ArrayList<>();
+        for (int component = components - 1; component >= 0; component--) {
+            int module = -1;
+            int dependentLayer = -1;
+            boolean oneModule = true;
+            for (int dependent : componentDependents[component]) {
+                int dependentModule = moduleOfComponent[dependent];
+                oneModule &= module < 0 || module == dependentModule;
+                module = dependentModule;
+                dependentLayer = Math.max(dependentLayer, moduleLayers.get(dependentModule));
+            }
+
+            if (module < 0 || !oneModule) {
+                module = moduleLayers.size();
+                moduleLayers.add(dependentLayer + 1);
+                moduleFiles.add(0L);
+            }
+            moduleOfComponent[component] = module;
+            moduleFiles.set(module, moduleFiles.get(module) + componentSizes[component]);
+        }
+
+        int modules = moduleLayers.size();
+        int layers = moduleLayers.stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+        long[] filesBelow = new long[layers];
+        for (int module = 0; module < modules; module++) {
+            for (int layer = moduleLayers.get(module) + 1; layer < layers; layer++) {
+                filesBelow[layer] += moduleFiles.get(module);
+            }
+        }
+
+        long[] dependentFiles = getDependentFiles(componentSizes, componentDependents, moduleOfComponent, modules);
+        double decouplingLevel = 0;
+        for (int module = 0; module < modules; module++) {
+            double share = (double) moduleFiles.get(module) / files;
+            int layer = moduleLayers.get(module);
+            if (layer == 0) {
+                decouplingLevel += share * (1 - share);
+            } else {
+                decouplingLevel += share * (1 - (double) dependentFiles[module] / filesBelow[layer]);
+            }
+        }
+        return decouplingLevel;
+    }
+
+    // the files outside each module that depend on it directly or transitively, found by walking the dependents of its components
+    private static long[] getDependentFiles(int[] componentSizes, int[][] componentDependents, int[] moduleOfComponent, int modules) {
+        List<List<Integer>> componentsOfModule = new ArrayList<>();
+        for (int module = 0; module < modules; module++) {
+            componentsOfModule.add(new ArrayList<>());
+        }
+        for (int component = 0; component < moduleOfComponent.length; component++) {
+            componentsOfModule.get(moduleOfComponent[component]).add(component);
+        }
+
+        long[] dependentFiles = new long[modules];
+        IntStream.range(0, modules).parallel().forEach(module -> {
+            BitSet visited = new BitSet(moduleOfComponent.length);
+            Deque<Integer> pending = new ArrayDeque<>(componentsOfModule.get(module));
+            componentsOfModule.get(module).forEach(visited::set);
+            long dependents = 0;
+            while (!pending.isEmpty()) {
+                for (int dependent : componentDependents[pending.pop()]) {
+                    if (!visited.get(dependent)) {
+                        visited.set(dependent);
+                        pending.push(dependent);
+                        dependents += componentSizes[dependent];
+                    }
+                }
+            }
+            dependentFiles[module] = dependents;
+        });
+        return dependentFiles;
+    }
+
+    private static int[][] transpose(int[][] componentDependencies) {
+        int[] dependentCounts = new int[componentDependencies.length];
+        for (int[] dependencies : componentDependencies) {
+            for (int dependency : dependencies) {
+                dependentCounts[dependency]++;
+            }
+        }
+        int[][] componentDependents = new int[componentDependencies.length][];
+        for (int component = 0; component < componentDependencies.length; component++) {
+            componentDependents[component] = new int[dependentCounts[component]];
+        }
+        int[] filled = new int[componentDependencies.length];
+        for (int component = 0; component < componentDependencies.length; component++) {
+            for (int dependency : componentDependencies[component]) {
+                componentDependents[dependency][filled[dependency]++] = component;
+            }
+        }
+        return componentDependents;
+    }
+
+    // Tarjan's algorithm without recursion; components are numbered after all components they depend on
+    private static int[] findComponents(int[][] fileDependencies) {
+        int files = fileDependencies.length;
+        int[] index = new int[files];
+        int[] lowLink = new int[files];
+        int[] component = new int[files];
+        int[] nextDependency = new int[files];
+        boolean[] onStack = new boolean[files];
+        Arrays.fill(index, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Integer> path = new ArrayDeque<>();
+        int nextIndex = 0;
+        int nextComponent = 0;
+
+        for (int root = 0; root < files; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            path.push(root);
+            index[root] = lowLink[root] = nextIndex++;
+            stack.push(root);
+            onStack[root] = true;
+
+            while (!path.isEmpty()) {
+                int file = path.peek();
+                int[] dependencies = fileDependencies[file];
+                if (nextDependency[file] < dependencies.length) {
+                    int dependency = dependencies[nextDependency[file]++];
+                    if (index[dependency] < 0) {
+                        index[dependency] = lowLink[dependency] = nextIndex++;
+                        stack.push(dependency);
+                        onStack[dependency] = true;
+                        path.push(dependency);
+                    } else if (onStack[dependency]) {
+                        lowLink[file] = Math.min(lowLink[file], index[dependency]);
+                    }
+                    continue;
+                }
+
+                path.pop();
+                if (!path.isEmpty()) {
+                    int parent = path.peek();
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[file]);
+                }
+                if (lowLink[file] == index[file]) {
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component[member] = nextComponent;
+                    } while (member != file);
+                    nextComponent++;
+                }
+            }
+        }
+        return component;
+    }
+
+    private static int[][] getComponentDependencies(int[][] fileDependencies, int[] componentOfFile, int components) {
+        List<BitSet> dependencies = new ArrayList<>();
+        for (int component = 0; component < components; component++) {
+            dependencies.add(new BitSet());
+        }
+        for (int file = 0; file < fileDependencies.length; file++) {
+            for (int dependency : fileDependencies[file]) {
+                if (componentOfFile[file] != componentOfFile[dependency]) {
+                    dependencies.get(componentOfFile[file]).set(componentOfFile[dependency]);
+                }
+            }
+        }
+        return dependencies.stream().map(bits -> bits.stream().toArray()).toArray(int[][]::new);
+    }
+
+    // the longest path to a component without dependencies, which have level 0
+    private static int[] getLevels(int[][] componentDependencies) {
+        int[] levels = new int[componentDependencies.length];
+        for (int component = 0; component < componentDependencies.length; component++) {
+            for (int dependency : componentDependencies[component]) {
+                levels[component] = Math.max(levels[component], levels[dependency] + 1);
+            }
+        }
+        return levels;
+    }
+
+    private static BitSet[] getReachableComponents(int[][] componentDependencies, int[] levels) {
+        int components = componentDependencies.length;
+        List<List<Integer>> componentsByLevel = new ArrayList<>();
+        for (int component = 0; component < components; component++) {
+            while (componentsByLevel.size() <= levels[component]) {
+                componentsByLevel.add(new ArrayList<>());
+            }
+            componentsByLevel.get(levels[component]).add(component);
+        }
+
+        BitSet[] reachable = new BitSet[components];
+        for (List<Integer> level : componentsByLevel) {
+            level.parallelStream().forEach(component -> {
+                BitSet row = new BitSet(components);
+                row.set(component);
+                for (int dependency : componentDependencies[component]) {
+                    row.or(reachable[dependency]);
+                }
+                reachable[component] = row;
+            });
+        }
+        return reachable;
+    }
+}
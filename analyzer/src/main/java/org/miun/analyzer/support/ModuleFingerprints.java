@@ -0,0 +1,107 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fingerprints of the modules of a Maven reactor. A module's fingerprint covers its own sources, test sources and pom,
+ * the poms of the directories above it and the fingerprints of the reactor modules it depends on, so it changes
+ * whenever the module's test results could change.
+ */
+public class ModuleFingerprints {
+    private final Map<String, String> blobIds;
+    private final String toolVersion;
+    private final Map<File, String> relativePaths = new HashMap<>();
+    private final Map<File, List<File>> upstreamModules = new HashMap<>();
+    private final Map<File, String> fingerprints = new HashMap<>();
+
+    private ModuleFingerprints(SnapshotInputs inputs, String toolVersion) {
+        this.blobIds = inputs.getBlobIds();
+        this.toolVersion = toolVersion;
+    }
+
+    /**
+     * Computes the fingerprints of the modules, or returns null if a module lies outside the project directory.
+     */
+    public static Map<File, String> compute(File repoDir, MavenReactor reactor, SnapshotInputs inputs, String toolVersion) {
+        List<File> modules = reactor.getModuleDirectories();
+        ModuleFingerprints moduleFingerprints = new ModuleFingerprints(inputs, toolVersion);
+        for (File module : modules) {
+            String relativePath = getRelativePath(repoDir, module);
+            if (relativePath.isEmpty() || relativePath.startsWith("..")) {
+                return null;
+            }
+            moduleFingerprints.relativePaths.put(module, relativePath);
+        }
+        for (File module : modules) {
+            // sorted, so the fingerprint does not depend on the order of the dependencies in the pom
+            List<File> upstream = new ArrayList<>(reactor.getUpstreamModules(module));
+            upstream.sort((first, second) -> moduleFingerprints.relativePaths.get(first).compareTo(moduleFingerprints.relativePaths.get(second)));
+            moduleFingerprints.upstreamModules.put(module, upstream);
+        }
+
+        for (File module : modules) {
+            moduleFingerprints.getFingerprint(module, new HashSet<>());
+        }
+        return moduleFingerprints.fingerprints;
+    }
+
+    public static String getRelativePath(File repoDir, File module) {
+        return repoDir.toPath().toAbsolutePath().normalize().relativize(module.toPath().toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    private String getFingerprint(File module, Set<File> visiting) {
+        String fingerprint = fingerprints.get(module);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+        // Maven rejects cyclic reactors, a cycle only ends the recursion here
+        if (!visiting.add(module)) {
+            return "";
+        }
+
+        String relativePath = relativePaths.get(module);
+        StringBuilder listing = new StringBuilder(toolVersion).append('\n');
+        blobIds.forEach((path, blobId) -> {
+            if (isAncestorPom(path, relativePath) || module.equals(getOwningModule(path))) {
+                listing.append(path).append('\0').append(blobId).append('\n');
+            }
+        });
+        for (File upstreamModule : upstreamModules.get(module)) {
+            listing.append(relativePaths.get(upstreamModule)).append('\0').append(getFingerprint(upstreamModule, visiting)).append('\n');
+        }
+
+        fingerprint = Checksums.sha256(listing.toString());
+        fingerprints.put(module, fingerprint);
+        return fingerprint;
+    }
+
+    // the poms of the project and of every directory between the project and the module, which it usually inherits from
+    private static boolean isAncestorPom(String path, String relativePath) {
+        if (!path.equals("pom.xml") && !path.endsWith("/pom.xml")) {
+            return false;
+        }
+        String directory = path.equals("pom.xml") ? "" : path.substring(0, path.length() - "/pom.xml".length());
+        return directory.isEmpty() || relativePath.startsWith(directory + "/");
+    }
+
+    // files belong to the innermost module containing them
+    private File getOwningModule(String path) {
+        File owningModule = null;
+        int owningPathLength = -1;
+        for (Map.Entry<File, String> module : relativePaths.entrySet()) {
+            String modulePath = module.getValue();
+            if (path.startsWith(modulePath + "/") && modulePath.length() > owningPathLength) {
+                owningModule = module.getKey();
+                owningPathLength = modulePath.length();
+            }
+        }
+        return owningModule;
+    }
+}
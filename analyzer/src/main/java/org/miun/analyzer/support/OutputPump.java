@@ -0,0 +1,123 @@
+package org.miun.analyzer.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies the output of a process to a compressed log file on a thread shared between runs, keeping only the last
+ * lines in memory for error reports.
+ */
+public class OutputPump {
+    private static final int TAIL_LINES = 40;
+    private static final int MAX_LINE_BYTES = 1024;
+    private static final AtomicInteger PUMP_COUNT = new AtomicInteger();
+    private static final ExecutorService PUMPS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "output-pump-" + PUMP_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Deque<String> tail = new ArrayDeque<>();
+    private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+    private Future<?> pumping;
+    private Runnable onFirstOutput;
+
+    private OutputPump() {
+    }
+
+    /**
+     * Starts copying the output to the gzip compressed log file until the output ends. The callback, if any, runs on
+     * the pump's thread once the first output arrived.
+     */
+    public static OutputPump start(InputStream output, File logFile, Runnable onFirstOutput) {
+        OutputPump pump = new OutputPump();
+        pump.onFirstOutput = onFirstOutput;
+        pump.pumping = PUMPS.submit(() -> {
+            try (InputStream input = output; OutputStream log = new GZIPOutputStream(new FileOutputStream(logFile))) {
+                pump.copy(input, log);
+            } catch (IOException e) {
+                pump.addLine("Could not write " + logFile + ": " + e.getMessage());
+            }
+        });
+        return pump;
+    }
+
+    /**
+     * Waits until the output ended and returns its last lines.
+     */
+    public List<String> awaitTail() throws InterruptedException {
+        try {
+            pumping.get();
+        } catch (ExecutionException e) {
+            addLine("Output pump failed: " + e.getCause());
+        }
+        synchronized (tail) {
+            return List.copyOf(tail);
+        }
+    }
+
+    /**
+     * The last lines of a compressed log that was written by another process.
+     */
+    public static List<String> readTail(File logFile) throws IOException {
+        OutputPump pump = new OutputPump();
+        try (InputStream input = new GZIPInputStream(new FileInputStream(logFile))) {
+            pump.copy(input, OutputStream.nullOutputStream());
+        }
+        synchronized (pump.tail) {
+            return List.copyOf(pump.tail);
+        }
+    }
+
+    private void copy(InputStream input, OutputStream log) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (onFirstOutput != null && read > 0) {
+                onFirstOutput.run();
+                onFirstOutput = null;
+            }
+            log.write(buffer, 0, read);
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    endLine();
+                } else if (currentLine.size() < MAX_LINE_BYTES) {
+                    currentLine.write(buffer[i]);
+                }
+            }
+        }
+        if (currentLine.size() > 0) {
+            endLine();
+        }
+    }
+
+    private void endLine() {
+        addLine(currentLine.toString(StandardCharsets.UTF_8).stripTrailing());
+        currentLine.reset();
+    }
+
+    private void addLine(String line) {
+        synchronized (tail) {
+            if (tail.size() == TAIL_LINES) {
+                tail.removeFirst();
+            }
+            tail.addLast(line);
+        }
+    }
+}
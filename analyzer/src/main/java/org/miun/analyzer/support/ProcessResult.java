@@ -0,0 +1,21 @@
+package org.miun.analyzer.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The outcome of a tool run. The exit code is -1 if the run timed out or could not be started, CPU time and peak
+ * resident memory cover the process and its descendants; a peak of -1 means it could not be measured. The output
+ * tail holds the last lines the run printed, where they are known.
+ */
+public record ProcessResult(int exitCode, boolean timedOut, Instant start, Duration wallTime, Duration cpuTime, long peakRssKb, List<String> outputTail) {
+
+    public static ProcessResult failed(Instant start) {
+        return new ProcessResult(-1, false, start, Duration.between(start, Instant.now()), Duration.ZERO, -1, List.of());
+    }
+
+    public ProcessResult withOutputTail(List<String> outputTail) {
+        return new ProcessResult(exitCode, timedOut, start, wallTime, cpuTime, peakRssKb, outputTail);
+    }
+}
@@ -0,0 +1,107 @@
+package org.miun.analyzer.support;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Waits for a process with a timeout and measures what it cost. CPU time and resident memory are sampled over the
+ * process and all its descendants, so child processes that live shorter than a sampling interval are missed.
+ */
+public class ProcessSupervisor {
+    private static final long SAMPLING_INTERVAL_MS = 500;
+    private static final long KILL_GRACE_PERIOD_SECONDS = 10;
+
+    private final Process process;
+    private final Instant start;
+    private final Map<Long, Duration> cpuTimes = new HashMap<>();
+    private long peakRssKb = -1;
+
+    private ProcessSupervisor(Process process, Instant start) {
+        this.process = process;
+        this.start = start;
+    }
+
+    /**
+     * Waits until the process exits or the timeout passes, in which case the whole process tree is killed.
+     * A zero timeout waits without limit.
+     */
+    public static ProcessResult waitFor(Process process, Instant start, Duration timeout) throws InterruptedException {
+        ProcessSupervisor supervisor = new ProcessSupervisor(process, start);
+        long deadline = timeout.isZero() ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+
+        boolean timedOut = false;
+        while (true) {
+            supervisor.sample();
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                timedOut = true;
+                killTree(process);
+                break;
+            }
+            if (process.waitFor(Math.min(SAMPLING_INTERVAL_MS, remainingMs), TimeUnit.MILLISECONDS)) {
+                break;
+            }
+        }
+
+        Duration cpuTime = supervisor.cpuTimes.values().stream().reduce(Duration.ZERO, Duration::plus);
+        return new ProcessResult(timedOut ? -1 : process.exitValue(), timedOut, start, Duration.between(start, Instant.now()), cpuTime, supervisor.peakRssKb, List.of());
+    }
+
+    /**
+     * Asks the process and its descendants to terminate and kills those still running after a grace period.
+     */
+    public static void killTree(Process process) throws InterruptedException {
+        // collected first, descendants are no longer found through the process once it exited
+        List<ProcessHandle> descendants = process.descendants().toList();
+        descendants.forEach(ProcessHandle::destroy);
+        process.destroy();
+
+        if (!process.waitFor(KILL_GRACE_PERIOD_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        process.waitFor();
+    }
+
+    // the CPU time of a process only grows, so the last value sampled per process is its total
+    private void sample() {
+        long rssKb = 0;
+        boolean rssKnown = false;
+        List<ProcessHandle> tree = Stream.concat(Stream.of(process.toHandle()), process.descendants()).toList();
+        for (ProcessHandle handle : tree) {
+            handle.info().totalCpuDuration().ifPresent(cpuTime -> cpuTimes.merge(handle.pid(), cpuTime, (previous, current) -> current.compareTo(previous) > 0 ? current : previous));
+
+            long processRssKb = readRssKb(handle.pid());
+            if (processRssKb >= 0) {
+                rssKb += processRssKb;
+                rssKnown = true;
+            }
+        }
+        if (rssKnown) {
+            peakRssKb = Math.max(peakRssKb, rssKb);
+        }
+    }
+
+    // resident memory is read from /proc and unknown on other systems
+    private static long readRssKb(long pid) {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the process exited or there is no /proc
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,46 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reports every tool run with one line on the console, followed by the run's last output lines if it failed,
+ * and appends its cost to the metrics.csv file of the snapshot's result directory.
+ */
+public class RunReport {
+    private static final String HEADER = "Stage,Start,WallSeconds,CpuSeconds,PeakRssMb,ExitCode,TimedOut\n";
+
+    public static void record(File snapshotResultsDirectory, String stage, ProcessResult result) {
+        String snapshot = snapshotResultsDirectory.getParentFile().getName() + "/" + snapshotResultsDirectory.getName();
+        String peakRssMb = result.peakRssKb() < 0 ? "" : Long.toString(result.peakRssKb() / 1024);
+
+        StringBuilder summary = new StringBuilder(String.format(Locale.US, "%s %s: %s after %.2f s, %.2f s CPU%s%n", stage, snapshot,
+                result.timedOut() ? "timed out" : "exit " + result.exitCode(), result.wallTime().toMillis() / 1000.0,
+                result.cpuTime().toMillis() / 1000.0, peakRssMb.isEmpty() ? "" : ", " + peakRssMb + " MB peak"));
+        if (result.exitCode() != 0) {
+            result.outputTail().forEach(line -> summary.append("    ").append(line).append(System.lineSeparator()));
+        }
+        // printed at once, so the lines of runs finishing at the same time do not interleave
+        (result.exitCode() == 0 ? System.out : System.err).print(summary);
+
+        appendMetrics(snapshotResultsDirectory, stage, result, peakRssMb);
+    }
+
+    private static synchronized void appendMetrics(File snapshotResultsDirectory, String stage, ProcessResult result, String peakRssMb) {
+        File metricsFile = new File(snapshotResultsDirectory, "metrics.csv");
+        String line = String.format(Locale.US, "%s,%s,%.2f,%.2f,%s,%d,%b%n", stage, result.start(), result.wallTime().toMillis() / 1000.0,
+                result.cpuTime().toMillis() / 1000.0, peakRssMb, result.exitCode(), result.timedOut());
+
+        try {
+            if (!metricsFile.exists()) {
+                Files.writeString(metricsFile.toPath(), HEADER);
+            }
+            Files.writeString(metricsFile.toPath(), line, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.printf("Could not write metrics of %s: %s%n", stage, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Snapshots the downloader stored as zip archives, which are extracted only for the duration of their analysis.
+ */
+public class SnapshotArchive {
+    private static final String EXTENSION = ".zip";
+    private static final int UNIX_EXTRA_FIELD = 0x756e;
+
+    public static boolean isArchive(File file) {
+        return file.isFile() && file.getName().endsWith(EXTENSION);
+    }
+
+    public static String getSnapshotName(File archive) {
+        return archive.getName().substring(0, archive.getName().length() - EXTENSION.length());
+    }
+
+    /**
+     * Extracts the archive into a new directory below the scratch directory and returns that directory.
+     */
+    public static Path extract(File archive, Path scratchDirectory) throws IOException {
+        Files.createDirectories(scratchDirectory);
+        Path targetDirectory = Files.createTempDirectory(scratchDirectory, getSnapshotName(archive) + "-");
+
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path targetPath = targetDirectory.resolve(entry.getName()).normalize();
+                if (!targetPath.startsWith(targetDirectory)) {
+                    throw new IOException("Archive entry outside of the snapshot: " + entry.getName());
+                }
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(targetPath);
+                    continue;
+                }
+
+                Files.createDirectories(targetPath.getParent());
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    Files.copy(inputStream, targetPath);
+                }
+                if (isExecutable(entry)) {
+                    targetPath.toFile().setExecutable(true);
+                }
+            }
+        } catch (IOException e) {
+            delete(targetDirectory);
+            throw e;
+        }
+
+        return targetDirectory;
+    }
+
+    // the downloader stores the git file mode in the Info-ZIP Unix extra field (tag "nu"), after its CRC-32
+    private static boolean isExecutable(ZipEntry entry) {
+        byte[] extra = entry.getExtra();
+        if (extra == null) {
+            return false;
+        }
+
+        ByteBuffer fields = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+        while (fields.remaining() >= 4) {
+            int tag = Short.toUnsignedInt(fields.getShort());
+            int size = Short.toUnsignedInt(fields.getShort());
+            if (size > fields.remaining()) {
+                return false;
+            }
+            if (tag == UNIX_EXTRA_FIELD && size >= 6) {
+                int mode = Short.toUnsignedInt(fields.getShort(fields.position() + 4));
+                return (mode & 0111) != 0;
+            }
+            fields.position(fields.position() + size);
+        }
+        return false;
+    }
+
+    public static void delete(Path extractedDirectory) throws IOException {
+        try (Stream<Path> paths = Files.walk(extractedDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.miun.analyzer.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The files of a snapshot that analysis tools read, with their git blob ids. The ids are taken from the snapshot's
+ * manifest when the downloader wrote one and computed from the files otherwise.
+ */
+public class SnapshotInputs {
+    private final Map<String, String> blobIds;
+
+    private SnapshotInputs(Map<String, String> blobIds) {
+        this.blobIds = blobIds;
+    }
+
+    public static SnapshotInputs read(File snapshotDirectory, File manifestFile) throws IOException {
+        Map<String, String> blobIds = new TreeMap<>();
+
+        if (manifestFile.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(manifestFile))) {
+                reader.readLine();  // skip header
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] columns = line.split(",", 3);
+                    if (!columns[1].equals("DELETED") && isToolInput(columns[2])) {
+                        blobIds.put(columns[2], columns[0]);
+                    }
+                }
+            }
+            return new SnapshotInputs(blobIds);
+        }
+
+        Path root = snapshotDirectory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                String relativePath = root.relativize(path).toString().replace(File.separatorChar, '/');
+                if (!relativePath.startsWith(".git/") && isToolInput(relativePath)) {
+                    blobIds.put(relativePath, Checksums.gitBlobId(path));
+                }
+            }
+        }
+        return new SnapshotInputs(blobIds);
+    }
+
+    /**
+     * A hash over the paths and contents of the selected files.
+     */
+    public String hash(Predicate<String> selection) {
+        StringBuilder listing = new StringBuilder();
+        blobIds.forEach((path, blobId) -> {
+            if (selection.test(path)) {
+                listing.append(path).append('\0').append(blobId).append('\n');
+            }
+        });
+        return Checksums.sha256(listing.toString());
+    }
+
+    /**
+     * The blob ids of the input files by their path relative to the snapshot, in path order.
+     */
+    public Map<String, String> getBlobIds() {
+        return Collections.unmodifiableMap(blobIds);
+    }
+
+    public static boolean isSource(String path) {
+        return path.endsWith(".java");
+    }
+
+    // sources, build files and everything below src, e.g. test resources
+    public static boolean isBuildInput(String path) {
+        return isSource(path) || path.equals("pom.xml") || path.endsWith("/pom.xml") || path.startsWith("src/") || path.contains("/src/");
+    }
+
+    private static boolean isToolInput(String path) {
+        return isBuildInput(path) && !path.startsWith("target/") && !path.contains("/target/");
+    }
+}
@@ -0,0 +1,70 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The bytes of Java source and the number of Maven modules (pom.xml files) of a snapshot directory or archive. Only
+ * file attributes and the sizes in the archive's directory are read, so measuring a snapshot reads no contents.
+ */
+public record SnapshotSize(long sourceBytes, int modules) {
+
+    public static SnapshotSize measure(File snapshot) throws IOException {
+        return SnapshotArchive.isArchive(snapshot) ? measureArchive(snapshot) : measureDirectory(snapshot.toPath());
+    }
+
+    private static SnapshotSize measureDirectory(Path snapshot) throws IOException {
+        long[] sourceBytes = {0};
+        int[] modules = {0};
+        Files.walkFileTree(snapshot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                // build output of earlier in-place builds, e.g. generated sources, is not part of the snapshot
+                String name = directory.getFileName().toString();
+                boolean buildOutput = name.equals("target") && Files.exists(directory.resolveSibling("pom.xml"));
+                return buildOutput || name.equals(".git") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String name = file.getFileName().toString();
+                if (name.equals("pom.xml")) {
+                    modules[0]++;
+                } else if (SnapshotInputs.isSource(name)) {
+                    sourceBytes[0] += attributes.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new SnapshotSize(sourceBytes[0], modules[0]);
+    }
+
+    private static SnapshotSize measureArchive(File archive) throws IOException {
+        long sourceBytes = 0;
+        int modules = 0;
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (entry.getName().equals("pom.xml") || entry.getName().endsWith("/pom.xml")) {
+                    modules++;
+                } else if (SnapshotInputs.isSource(entry.getName())) {
+                    // the uncompressed size, -1 if the archive does not record it
+                    sourceBytes += Math.max(0, entry.getSize());
+                }
+            }
+        }
+        return new SnapshotSize(sourceBytes, modules);
+    }
+}
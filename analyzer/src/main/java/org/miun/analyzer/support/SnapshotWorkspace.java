@@ -0,0 +1,119 @@
+package org.miun.analyzer.support;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A private copy of a stored snapshot for stages that write into the project, such as the Maven build, discarded
+ * after the stage. Files are copied, so a build modifying a project file in place never changes the stored snapshot;
+ * with hard links enabled, files only the snapshot links to are linked where the workspace shares its file system.
+ */
+public class SnapshotWorkspace {
+    private static final Set<String> IN_MEMORY_FILE_STORES = Set.of("tmpfs", "ramfs");
+
+    /**
+     * Creates a workspace of the snapshot in a new directory below the workspace directory and returns that directory.
+     */
+    public static Path create(Path snapshot, Path workspaceDirectory, boolean hardLinks) throws IOException {
+        Files.createDirectories(workspaceDirectory);
+        Path workspace = Files.createTempDirectory(workspaceDirectory, snapshot.getFileName() + "-");
+
+        try {
+            Files.walkFileTree(snapshot, new SimpleFileVisitor<>() {
+                private boolean linking = hardLinks;
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    if (isExcluded(directory)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(workspace.resolve(snapshot.relativize(directory).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Path target = workspace.resolve(snapshot.relativize(file).toString());
+                    if (linking && !isShared(file)) {
+                        try {
+                            Files.createLink(target, file);
+                            return FileVisitResult.CONTINUE;
+                        } catch (UnsupportedOperationException | IOException e) {
+                            // e.g. a workspace on tmpfs, the remaining files are copied without trying to link them
+                            linking = false;
+                        }
+                    }
+                    Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            delete(workspace);
+            throw e;
+        }
+        return workspace;
+    }
+
+    /**
+     * The bytes a workspace of the snapshot takes when its files are copied.
+     */
+    public static long measure(Path snapshot) throws IOException {
+        long[] bytes = {0};
+        Files.walkFileTree(snapshot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                return isExcluded(directory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                bytes[0] += attributes.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return bytes[0];
+    }
+
+    /**
+     * Whether workspaces in the directory are kept in memory, so that they count against the memory of the tools.
+     */
+    public static boolean isInMemory(Path workspaceDirectory) throws IOException {
+        Files.createDirectories(workspaceDirectory);
+        return IN_MEMORY_FILE_STORES.contains(Files.getFileStore(workspaceDirectory).type());
+    }
+
+    public static void delete(Path workspace) throws IOException {
+        try (Stream<Path> paths = Files.walk(workspace)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // build output left in the snapshot by earlier in-place builds is not part of the project
+    private static boolean isExcluded(Path directory) {
+        if (directory.getFileName() == null) {
+            return false;
+        }
+        String name = directory.getFileName().toString();
+        return name.equals(".git") || name.equals("target") && Files.exists(directory.resolveSibling("pom.xml"));
+    }
+
+    // a file with several links is shared, e.g. a blob of deduplicated snapshot storage; linking it would let a build
+    // modifying it in place change every snapshot sharing it
+    private static boolean isShared(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink") > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return true;
+        }
+    }
+}
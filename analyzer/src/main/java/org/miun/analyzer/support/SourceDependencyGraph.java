@@ -0,0 +1,288 @@
+package org.miun.analyzer.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The dependencies between the Java source files of a snapshot. A file depends on another file if it names a top-level
+ * type the other file declares, resolved like the compiler does for simple names: through single type imports, the
+ * file's own package and on-demand imports, in that order, and fully qualified names. Nested types are reached through
+ * the file of their top-level type. Comments and literals are skipped, so names only mentioned there do not count.
+ */
+public class SourceDependencyGraph {
+    private final List<Path> files;
+    private final int[][] dependencies;
+
+    private SourceDependencyGraph(List<Path> files, int[][] dependencies) {
+        this.files = files;
+        this.dependencies = dependencies;
+    }
+
+    // what a source file declares and names, with the names as they are written
+    private record SourceFile(String packageName, List<String> imports, List<String> onDemandImports, List<String> types, Set<String> names) {
+    }
+
+    /**
+     * Reads the Java sources below the snapshot directory, skipping .git and the build output next to a pom.
+     */
+    public static SourceDependencyGraph read(Path snapshotDirectory) throws IOException {
+        List<Path> files = findSources(snapshotDirectory);
+
+        List<SourceFile> sourceFiles;
+        try {
+            sourceFiles = files.parallelStream().map(file -> {
+                try {
+                    return scan(Files.readString(file, StandardCharsets.ISO_8859_1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // a type declared in more than one file, e.g. in two modules, belongs to the file found first
+        Map<String, Integer> filesByType = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            SourceFile sourceFile = sourceFiles.get(i);
+            for (String type : sourceFile.types()) {
+                filesByType.putIfAbsent(qualify(sourceFile.packageName(), type), i);
+            }
+        }
+
+        int[][] dependencies = IntStream.range(0, files.size()).parallel()
+                .mapToObj(i -> resolve(sourceFiles.get(i), i, filesByType))
+                .toArray(int[][]::new);
+        return new SourceDependencyGraph(files, dependencies);
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * The indexes of the files the file depends on, without the file itself.
+     */
+    public int[] getDependencies(int file) {
+        return dependencies[file];
+    }
+
+    public long countDependencies() {
+        long count = 0;
+        for (int[] fileDependencies : dependencies) {
+            count += fileDependencies.length;
+        }
+        return count;
+    }
+
+    private static List<Path> findSources(Path snapshotDirectory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(snapshotDirectory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                String name = directory.equals(snapshotDirectory) ? "" : directory.getFileName().toString();
+                boolean buildOutput = name.equals("target") && Files.exists(directory.resolveSibling("pom.xml"));
+                return buildOutput || name.equals(".git") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (SnapshotInputs.isSource(file.getFileName().toString())) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        return files;
+    }
+
+    private static int[] resolve(SourceFile sourceFile, int file, Map<String, Integer> filesByType) {
+        Map<String, String> importedTypes = new HashMap<>();
+        Set<Integer> dependencies = new LinkedHashSet<>();
+        for (String imported : sourceFile.imports()) {
+            // a static import names a member, its type is the longest prefix that is a known type
+            Integer importedFile = findType(imported, filesByType);
+            if (importedFile != null) {
+                dependencies.add(importedFile);
+            }
+            importedTypes.put(imported.substring(imported.lastIndexOf('.') + 1), imported);
+        }
+
+        for (String name : sourceFile.names()) {
+            Integer dependency = null;
+            String simpleName = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+            String importedType = importedTypes.get(simpleName);
+            if (importedType != null) {
+                dependency = filesByType.get(importedType);
+            }
+            if (dependency == null) {
+                dependency = filesByType.get(qualify(sourceFile.packageName(), simpleName));
+            }
+            for (int i = 0; dependency == null && i < sourceFile.onDemandImports().size(); i++) {
+                dependency = filesByType.get(qualify(sourceFile.onDemandImports().get(i), simpleName));
+            }
+            if (dependency == null && name.contains(".")) {
+                dependency = findType(name, filesByType);
+            }
+            if (dependency != null) {
+                dependencies.add(dependency);
+            }
+        }
+
+        dependencies.remove(file);
+        return dependencies.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // the type named by the longest prefix of the qualified name, e.g. a.b.C for a.b.C.Inner or a.b.C.member
+    private static Integer findType(String qualifiedName, Map<String, Integer> filesByType) {
+        String name = qualifiedName;
+        while (true) {
+            Integer file = filesByType.get(name);
+            if (file != null || name.indexOf('.') < 0) {
+                return file;
+            }
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+    }
+
+    private static String qualify(String packageName, String type) {
+        return packageName.isEmpty() ? type : packageName + "." + type;
+    }
+
+    // a single pass over the source that skips comments and literals and joins names separated by dots
+    private static SourceFile scan(String source) {
+        String packageName = "";
+        List<String> imports = new ArrayList<>();
+        List<String> onDemandImports = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+
+        int depth = 0;
+        String previous = null;
+        boolean importStatement = false;
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                i = skipTo(source, i + 2, "\n");
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                i = skipTo(source, i + 2, "*/");
+            } else if (c == '"' && source.startsWith("\"\"\"", i)) {
+                i = skipLiteral(source, i + 3, "\"\"\"");
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(source, i + 1, String.valueOf(c));
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                i = readName(source, i);
+                String name = source.substring(start, i);
+                if (name.chars().anyMatch(Character::isWhitespace)) {
+                    name = name.replaceAll("\\s+", "");
+                }
+                boolean onDemand = name.endsWith(".*");
+
+                if ("package".equals(previous) && depth == 0) {
+                    packageName = name;
+                } else if (importStatement) {
+                    if (onDemand) {
+                        onDemandImports.add(name.substring(0, name.length() - 2));
+                    } else if (!name.equals("static")) {
+                        imports.add(name);
+                    }
+                } else if (depth == 0 && isTypeKeyword(previous)) {
+                    types.add(name);
+                } else if (Character.isUpperCase(name.charAt(0)) || name.indexOf('.') > 0) {
+                    names.add(name);
+                }
+
+                if (name.equals("import") && depth == 0) {
+                    importStatement = true;
+                } else if (!name.equals("static")) {
+                    importStatement = false;
+                }
+                previous = name;
+            } else {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth = Math.max(0, depth - 1);
+                }
+                if (!Character.isWhitespace(c)) {
+                    previous = null;
+                    importStatement = false;
+                }
+                i++;
+            }
+        }
+        return new SourceFile(packageName, imports, onDemandImports, types, names);
+    }
+
+    private static boolean isTypeKeyword(String word) {
+        return "class".equals(word) || "interface".equals(word) || "enum".equals(word) || "record".equals(word);
+    }
+
+    // an identifier with the identifiers following it after a dot, and a trailing .* of on-demand imports
+    private static int readName(String source, int i) {
+        int length = source.length();
+        while (true) {
+            while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+                i++;
+            }
+            int next = skipWhitespace(source, i);
+            if (next >= length || source.charAt(next) != '.') {
+                return i;
+            }
+            int afterDot = skipWhitespace(source, next + 1);
+            if (afterDot < length && source.charAt(afterDot) == '*') {
+                return afterDot + 1;
+            }
+            if (afterDot >= length || !Character.isJavaIdentifierStart(source.charAt(afterDot))) {
+                return i;
+            }
+            i = afterDot;
+        }
+    }
+
+    private static int skipWhitespace(String source, int i) {
+        while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipTo(String source, int i, String end) {
+        int index = source.indexOf(end, i);
+        return index < 0 ? source.length() : index + end.length();
+    }
+
+    private static int skipLiteral(String source, int i, String end) {
+        while (i < source.length()) {
+            if (source.charAt(i) == '\\') {
+                i += 2;
+            } else if (source.startsWith(end, i)) {
+                return i + end.length();
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+}
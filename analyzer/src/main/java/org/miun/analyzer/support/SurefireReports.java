@@ -0,0 +1,138 @@
+package org.miun.analyzer.support;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the XML reports Surefire and Failsafe write for every test class of a module, streaming and in parallel.
+ */
+public class SurefireReports {
+    private static final List<String> REPORT_DIRECTORIES = List.of("target/surefire-reports", "target/failsafe-reports");
+
+    /**
+     * The test cases of a module. A module without reports ran no tests.
+     */
+    public static List<TestCase> read(File moduleDirectory) throws IOException {
+        List<File> reports = new ArrayList<>();
+        for (String reportDirectory : REPORT_DIRECTORIES) {
+            File[] reportFiles = new File(moduleDirectory, reportDirectory).listFiles((dir, name) -> name.startsWith("TEST-") && name.endsWith(".xml"));
+            if (reportFiles != null) {
+                reports.addAll(Arrays.asList(reportFiles));
+            }
+        }
+        reports.sort(Comparator.naturalOrder());
+
+        try {
+            return reports.parallelStream().flatMap(report -> readReport(report).stream()).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the test cases of all modules, one line per test case.
+     */
+    public static void writeTestCases(File testCasesFile, Map<String, List<TestCase>> moduleTestCases) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(testCasesFile))) {
+            writer.write("Module,Class,Test,TimeSeconds,Status\n");
+            for (Map.Entry<String, List<TestCase>> module : moduleTestCases.entrySet()) {
+                for (TestCase testCase : module.getValue()) {
+                    writer.write(String.format(Locale.US, "%s,%s,%s,%.3f,%s%n", quote(module.getKey()), quote(testCase.className()), quote(testCase.name()), testCase.timeSeconds(), testCase.status()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the totals of every module, one line per module.
+     */
+    public static void writeModuleTotals(File moduleTotalsFile, Map<String, List<TestCase>> moduleTestCases) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(moduleTotalsFile))) {
+            writer.write("Module,Tests,Failures,Errors,Skipped,TimeSeconds\n");
+            for (Map.Entry<String, List<TestCase>> module : moduleTestCases.entrySet()) {
+                TestCounts counts = TestCounts.of(module.getValue());
+                double timeSeconds = module.getValue().stream().mapToDouble(TestCase::timeSeconds).sum();
+                writer.write(String.format(Locale.US, "%s,%d,%d,%d,%d,%.3f%n", quote(module.getKey()), counts.run(), counts.failures(), counts.errors(), counts.skipped(), timeSeconds));
+            }
+        }
+    }
+
+    private static List<TestCase> readReport(File report) {
+        List<TestCase> testCases = new ArrayList<>();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        try (InputStream inputStream = Files.newInputStream(report.toPath())) {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            String className = null;
+            String name = null;
+            double timeSeconds = 0;
+            TestCase.Status status = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "testcase" -> {
+                            className = getAttribute(reader, "classname");
+                            name = getAttribute(reader, "name");
+                            timeSeconds = parseTime(getAttribute(reader, "time"));
+                            status = TestCase.Status.PASSED;
+                        }
+                        case "failure" -> status = status == null ? null : TestCase.Status.FAILED;
+                        case "error" -> status = status == null ? null : TestCase.Status.ERROR;
+                        case "skipped" -> status = status == null ? null : TestCase.Status.SKIPPED;
+                        default -> {
+                            // flaky reruns, output and properties do not change the outcome
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("testcase")) {
+                    testCases.add(new TestCase(className, name, timeSeconds, status));
+                    status = null;
+                }
+            }
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (XMLStreamException e) {
+            throw new UncheckedIOException(new IOException("Invalid test report " + report, e));
+        }
+        return testCases;
+    }
+
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    // older Surefire versions format times with grouping separators, e.g. 1,234.5
+    private static double parseTime(String time) {
+        try {
+            return time.isEmpty() ? 0 : Double.parseDouble(time.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String quote(String value) {
+        if (!value.contains(",") && !value.contains("\"") && !value.contains("\n")) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
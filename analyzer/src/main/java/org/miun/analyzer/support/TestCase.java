@@ -0,0 +1,45 @@
+package org.miun.analyzer.support;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A test case reported by Surefire or Failsafe.
+ */
+public record TestCase(String className, String name, double timeSeconds, Status status) {
+
+    public enum Status {
+        PASSED,
+        FAILED,
+        ERROR,
+        SKIPPED
+    }
+
+    /**
+     * Writes the test cases tab separated, one per line, so {@link #read(Path)} can read them back.
+     */
+    public static void write(Path file, List<TestCase> testCases) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (TestCase testCase : testCases) {
+            lines.add(String.join("\t", clean(testCase.className), clean(testCase.name), String.format(Locale.US, "%.3f", testCase.timeSeconds), testCase.status.name()));
+        }
+        Files.write(file, lines);
+    }
+
+    public static List<TestCase> read(Path file) throws IOException {
+        List<TestCase> testCases = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            String[] columns = line.split("\t", -1);
+            testCases.add(new TestCase(columns[0], columns[1], Double.parseDouble(columns[2]), Status.valueOf(columns[3])));
+        }
+        return testCases;
+    }
+
+    private static String clean(String value) {
+        return value.replaceAll("[\t\r\n]", " ");
+    }
+}
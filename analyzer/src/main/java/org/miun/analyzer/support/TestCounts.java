@@ -0,0 +1,41 @@
+package org.miun.analyzer.support;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The number of tests that ran, failed, errored and were skipped.
+ */
+public record TestCounts(int run, int failures, int errors, int skipped) {
+    public static TestCounts of(List<TestCase> testCases) {
+        int failures = 0;
+        int errors = 0;
+        int skipped = 0;
+        for (TestCase testCase : testCases) {
+            switch (testCase.status()) {
+                case FAILED -> failures++;
+                case ERROR -> errors++;
+                case SKIPPED -> skipped++;
+                case PASSED -> {
+                }
+            }
+        }
+        return new TestCounts(testCases.size(), failures, errors, skipped);
+    }
+
+    /**
+     * Writes the counts in the format of a snapshot's testdata.csv.
+     */
+    public void writeTestData(File testAnalysisFile) throws IOException {
+        int successful = run - failures - errors - skipped;
+        double successPercentage = run != 0 ? ((double) successful / run) * 100 : -1.0;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(testAnalysisFile))) {
+            writer.write("SuccessfulTests,FailedTests,ErrorTests,SkippedTests,TotalTests,PercentageOfSuccessfulTests\n");
+            writer.write(String.format(Locale.US, "%d,%d,%d,%d,%d,%.2f", successful, failures, errors, skipped, run, successPercentage));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.miun.analyzer.support;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A long-lived JVM that runs a tool jar repeatedly through {@link ToolHostMain}, one run at a time.
+ */
+public class ToolHost implements AutoCloseable {
+    private static final double MAX_HEAP_USAGE = 0.75;
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tool-host-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Process process;
+    private final BufferedWriter commands;
+    private final BufferedReader replies;
+    private final ClassDataSharing classDataSharing;
+    private final ClassDataSharing.Launch launch;
+    private int runs;
+    private long usedHeapBytes;
+    private long maxHeapBytes = Long.MAX_VALUE;
+
+    private ToolHost(Process process, ClassDataSharing classDataSharing, ClassDataSharing.Launch launch) {
+        this.process = process;
+        this.commands = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.classDataSharing = classDataSharing;
+        this.launch = launch;
+    }
+
+    /**
+     * Starts a host for the tool jar and waits until it has loaded the tool.
+     */
+    public static ToolHost start(File toolJar, int memoryMb, ClassDataSharing classDataSharing) throws IOException {
+        String tool = toolJar.getName().replaceFirst("\\.jar$", "") + "-host";
+        List<Path> classpath = new ArrayList<>(List.of(toolJar.toPath()));
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            // the host's own classes are part of the archive as well, which is only possible when they come from jars
+            if (Files.isDirectory(Path.of(entry))) {
+                classpath.clear();
+                break;
+            }
+            classpath.add(Path.of(entry));
+        }
+        ClassDataSharing.Launch launch = classDataSharing.prepare(tool, "java", classpath);
+
+        List<String> command = new ArrayList<>(List.of("java", "-Xmx" + memoryMb + "m", "-Djava.security.manager=allow"));
+        command.addAll(launch.getJvmOptions());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), ToolHostMain.class.getName(), toolJar.getAbsolutePath()));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        launch.started();
+        ToolHost host = new ToolHost(processBuilder.start(), classDataSharing, launch);
+
+        String ready = host.replies.readLine();
+        if (!"READY".equals(ready)) {
+            host.close();
+            throw new IOException("Tool host did not start: " + ready);
+        }
+        classDataSharing.logTime(launch, "startup");
+        return host;
+    }
+
+    /**
+     * Runs the tool with the given arguments, writing its output to the log file. A run that does not finish within
+     * the timeout kills the host; a zero timeout waits without limit.
+     */
+    public ProcessResult run(List<String> args, File logFile, Duration timeout) throws IOException {
+        Instant start = Instant.now();
+        Duration cpuTimeBefore = process.info().totalCpuDuration().orElse(Duration.ZERO);
+        commands.write(logFile.getAbsolutePath() + "\t" + String.join("\t", args));
+        commands.newLine();
+        commands.flush();
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = timeout.isZero() ? null : WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            process.destroyForcibly();
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        String reply;
+        try {
+            reply = replies.readLine();
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+        }
+        if (timedOut.get()) {
+            return new ProcessResult(-1, true, start, Duration.between(start, Instant.now()), Duration.ZERO, -1, List.of());
+        }
+        if (reply == null) {
+            throw new IOException("Tool host exited unexpectedly");
+        }
+        if (!reply.startsWith("OK ")) {
+            throw new IOException("Tool host failed: " + reply);
+        }
+
+        String[] parts = reply.split(" ");
+        runs++;
+        usedHeapBytes = Long.parseLong(parts[2]);
+        maxHeapBytes = Long.parseLong(parts[3]);
+        // the host's memory is not released between runs, so the peak of a single run is unknown
+        Duration cpuTime = process.info().totalCpuDuration().orElse(Duration.ZERO).minus(cpuTimeBefore);
+        return new ProcessResult(Integer.parseInt(parts[1]), false, start, Duration.between(start, Instant.now()), cpuTime, -1, List.of());
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public boolean needsRecycling(int maxRuns) {
+        return !process.isAlive() || runs >= maxRuns || usedHeapBytes > maxHeapBytes * MAX_HEAP_USAGE;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // closing standard input ends the host's command loop
+            commands.close();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            classDataSharing.exited(launch);
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+}
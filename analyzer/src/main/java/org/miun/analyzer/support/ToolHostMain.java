@@ -0,0 +1,125 @@
+package org.miun.analyzer.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Entry point of a tool host JVM. It loads the tool jar given as argument once, in its own class loader,
+ * and runs the tool's main method for every command read from standard input.
+ * <p>
+ * Once the tool is loaded the host prints {@code READY}. A command is one line holding the log file and the tool
+ * arguments, separated by tabs. Each run is answered on standard output with {@code OK <exitCode> <usedHeapBytes> <maxHeapBytes>} or {@code ERROR <message>}.
+ */
+public class ToolHostMain {
+
+    public static void main(String[] args) throws Exception {
+        // standard output carries the replies, everything the tool prints goes to the log of its run
+        PrintStream replies = System.out;
+        PrintStream console = System.err;
+        Method entryPoint = loadEntryPoint(new File(args[0]));
+        installExitTrap();
+        replies.println("READY");
+        replies.flush();
+
+        BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = commands.readLine()) != null) {
+            String[] parts = command.split("\t", -1);
+            String reply;
+            try (PrintStream log = new PrintStream(openLog(parts[0]), true, StandardCharsets.UTF_8)) {
+                System.setOut(log);
+                System.setErr(log);
+                reply = run(entryPoint, Arrays.copyOfRange(parts, 1, parts.length), log);
+            } catch (IOException e) {
+                reply = "ERROR " + e;
+            } finally {
+                System.setOut(console);
+                System.setErr(console);
+            }
+            replies.println(reply.replace('\n', ' ').replace('\r', ' '));
+            replies.flush();
+        }
+    }
+
+    // logs named .gz are compressed like the logs of tools run in their own process
+    private static OutputStream openLog(String logFile) throws IOException {
+        OutputStream log = new FileOutputStream(logFile);
+        return logFile.endsWith(".gz") ? new GZIPOutputStream(log, true) : log;
+    }
+
+    private static String run(Method entryPoint, String[] toolArgs, PrintStream log) {
+        Thread.currentThread().setContextClassLoader(entryPoint.getDeclaringClass().getClassLoader());
+
+        int exitCode = 0;
+        try {
+            entryPoint.invoke(null, (Object) toolArgs);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ExitTrappedException exit) {
+                exitCode = exit.status;
+            } else {
+                e.getCause().printStackTrace(log);
+                return "ERROR " + e.getCause();
+            }
+        } catch (IllegalAccessException e) {
+            return "ERROR " + e;
+        }
+
+        // measured after a collection, so the parent sees what the tool keeps between runs
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return String.format("OK %d %d %d", exitCode, runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+    }
+
+    private static Method loadEntryPoint(File toolJar) throws IOException, ReflectiveOperationException {
+        String mainClass;
+        try (JarFile jarFile = new JarFile(toolJar)) {
+            mainClass = jarFile.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+
+        // the platform class loader as parent keeps the tool apart from the analyzer's classes
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{toolJar.toURI().toURL()}, ClassLoader.getPlatformClassLoader());
+        return classLoader.loadClass(mainClass).getMethod("main", String[].class);
+    }
+
+    // tools end with System.exit, which would end the host; the exit is turned into an exception instead
+    @SuppressWarnings("removal")
+    private static void installExitTrap() {
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkExit(int status) {
+                throw new ExitTrappedException(status);
+            }
+
+            @Override
+            public void checkPermission(Permission permission) {
+            }
+
+            @Override
+            public void checkPermission(Permission permission, Object context) {
+            }
+        });
+    }
+
+    private static class ExitTrappedException extends SecurityException {
+        private final int status;
+
+        private ExitTrappedException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.miun.analyzer.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Idle tool hosts of one tool, reused between runs. A host is recycled after a number of runs or when the heap
+ * it keeps between runs grows too large, and discarded when a run fails. A host keeps its heap while it is idle, so
+ * its memory stays reserved in the budget for as long as it lives; idle hosts are closed when a reservation waits.
+ */
+public class ToolHostPool implements AutoCloseable {
+    private final File toolJar;
+    private final int memoryMb;
+    private final int maxRuns;
+    private final ClassDataSharing classDataSharing;
+    private final MemoryBudget memoryBudget;
+    private final Deque<ToolHost> idleHosts = new ArrayDeque<>();
+
+    public ToolHostPool(File toolJar, int memoryMb, int maxRuns, ClassDataSharing classDataSharing, MemoryBudget memoryBudget) {
+        this.toolJar = toolJar;
+        this.memoryMb = memoryMb;
+        this.maxRuns = maxRuns;
+        this.classDataSharing = classDataSharing;
+        this.memoryBudget = memoryBudget;
+        memoryBudget.addReclaimer(this::closeIdleHosts);
+    }
+
+    public ProcessResult run(List<String> args, File logFile, Duration timeout) throws IOException, InterruptedException {
+        ToolHost host = takeIdleHost();
+        if (host == null) {
+            host = startHost();
+        }
+
+        boolean reusable = false;
+        try {
+            ProcessResult result = host.run(args, logFile, timeout);
+            // a host the watchdog killed may still be reported alive until its exit is reaped
+            reusable = !result.timedOut() && !host.needsRecycling(maxRuns);
+            if (!reusable && !result.timedOut()) {
+                System.out.printf("Recycling tool host of %s after %d runs%n", toolJar.getName(), host.getRuns());
+            }
+            return result;
+        } finally {
+            if (reusable) {
+                returnIdleHost(host);
+            } else {
+                closeHost(host);
+            }
+        }
+    }
+
+    /**
+     * Closes the idle hosts and releases their memory; hosts that are running a tool stay open.
+     */
+    public void closeIdleHosts() {
+        List<ToolHost> hosts;
+        synchronized (this) {
+            hosts = new ArrayList<>(idleHosts);
+            idleHosts.clear();
+        }
+        hosts.forEach(this::closeHost);
+    }
+
+    @Override
+    public void close() {
+        closeIdleHosts();
+    }
+
+    private ToolHost startHost() throws IOException, InterruptedException {
+        memoryBudget.reserve(memoryMb);
+        try {
+            return ToolHost.start(toolJar, memoryMb, classDataSharing);
+        } catch (IOException | RuntimeException e) {
+            memoryBudget.release(memoryMb);
+            throw e;
+        }
+    }
+
+    private void closeHost(ToolHost host) {
+        host.close();
+        memoryBudget.release(memoryMb);
+    }
+
+    private synchronized ToolHost takeIdleHost() {
+        return idleHosts.poll();
+    }
+
+    private synchronized void returnIdleHost(ToolHost host) {
+        idleHosts.push(host);
+    }
+}
@@ -0,0 +1,166 @@
+package org.miun.analyzer;
+
+import junit.framework.TestCase;
+import org.miun.analyzer.support.CommandRunner;
+import org.miun.analyzer.support.MemoryBudget;
+import org.miun.analyzer.support.ProcessResult;
+import org.miun.constants.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+public class DependencyResolverTest extends TestCase {
+    // the settings mirror central to the user's local repository, so the test runs without network
+    private static final Path LOCAL_REPOSITORY = Path.of(System.getProperty("user.home"), ".m2", "repository");
+    // the configured platform describes the analysis machine, the test runs on this one
+    private static final Platform PLATFORM = System.getProperty("os.name").startsWith("Windows") ? Platform.WINDOWS : Platform.LINUX;
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("dependency-resolver-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    public void testResolvesFromFileRepositoryOfSettings() throws Exception {
+        if (!Files.isDirectory(LOCAL_REPOSITORY.resolve("org/apache/maven/plugins/maven-dependency-plugin/3.7.0"))) {
+            System.out.println("Skipping the resolution test, maven-dependency-plugin 3.7.0 is not in the local repository");
+            return;
+        }
+
+        Path fixtureRepository = createFixtureRepository();
+        Path settingsFile = writeSettings(fixtureRepository);
+        Path sharedRepository = directory.resolve("shared");
+        File first = createProject("first");
+        File firstResults = createResultsDirectory("first");
+
+        DependencyResolver resolver = newResolver(sharedRepository, settingsFile);
+        assertTrue(resolver.awaitResolution(first, firstResults));
+        resolver.close();
+        assertTrue(Files.isRegularFile(sharedRepository.resolve("org/example/fixture-lib/1.0/fixture-lib-1.0.jar")));
+        try (Stream<Path> markers = Files.list(sharedRepository.resolve(".resolved"))) {
+            assertEquals(1, markers.count());
+        }
+
+        List<String> command = new ArrayList<>(List.of(PLATFORM.getMvnCommand(), "-B", "-o", "compile"));
+        command.addAll(resolver.getMavenOptions());
+        ProcessResult build = CommandRunner.runTestCommand(command, first,
+                new File(firstResults, "maven.log.gz"), Map.of(), Duration.ofMinutes(5));
+        assertEquals(String.join("\n", build.outputTail()), 0, build.exitCode());
+
+        // a later run finds the build files resolved by their marker and does not start Maven
+        File second = createProject("second");
+        File secondResults = createResultsDirectory("second");
+        DependencyResolver laterResolver = newResolver(sharedRepository, settingsFile);
+        assertTrue(laterResolver.awaitResolution(second, secondResults));
+        laterResolver.close();
+        assertFalse(new File(secondResults, "resolve.log.gz").exists());
+    }
+
+    public void testMergeKeepsSharedFilesAndAddsNewOnes() throws Exception {
+        Path sharedRepository = directory.resolve("shared");
+        write(sharedRepository.resolve("g/a/1/a-1.jar"), "shared");
+        write(sharedRepository.resolve("g/a/1/_remote.repositories"), "a-1.jar>central=\n");
+
+        DependencyResolver resolver = newResolver(sharedRepository, null);
+        Path privateRepository = resolver.createPrivateRepository();
+        write(privateRepository.resolve("g/a/1/a-1.jar"), "private");
+        write(privateRepository.resolve("g/a/1/a-1.pom"), "<project/>");
+        write(privateRepository.resolve("g/a/1/_remote.repositories"), "a-1.pom>central=\n");
+        write(privateRepository.resolve("g/b/1/b-1.jar"), "b");
+        write(privateRepository.resolve("g/b/1/b-1.pom.lastUpdated"), "");
+        write(privateRepository.resolve("g/b/1/resolver-status.properties"), "");
+        write(privateRepository.resolve("org/example/app/maven-metadata-local.xml"), "<metadata/>");
+        write(privateRepository.resolve("org/example/app/1.0/app-1.0.jar"), "installed");
+
+        resolver.merge(privateRepository).get();
+        resolver.close();
+
+        assertEquals("shared", Files.readString(sharedRepository.resolve("g/a/1/a-1.jar")));
+        assertTrue(Files.isRegularFile(sharedRepository.resolve("g/a/1/a-1.pom")));
+        assertTrue(Files.isRegularFile(sharedRepository.resolve("g/b/1/b-1.jar")));
+        assertFalse(Files.exists(sharedRepository.resolve("g/b/1/b-1.pom.lastUpdated")));
+        assertFalse(Files.exists(sharedRepository.resolve("g/b/1/resolver-status.properties")));
+        assertFalse(Files.exists(sharedRepository.resolve("org/example/app")));
+        assertFalse(Files.exists(privateRepository));
+
+        Properties remoteRepositories = new Properties();
+        try (InputStream input = Files.newInputStream(sharedRepository.resolve("g/a/1/_remote.repositories"))) {
+            remoteRepositories.load(input);
+        }
+        assertTrue(remoteRepositories.containsKey("a-1.jar>central"));
+        assertTrue(remoteRepositories.containsKey("a-1.pom>central"));
+    }
+
+    private static DependencyResolver newResolver(Path sharedRepository, Path settingsFile) {
+        return new DependencyResolver(PLATFORM.getMvnCommand(), sharedRepository, settingsFile == null ? null : settingsFile.toString(), new MemoryBudget(4096), 512);
+    }
+
+    // an artifact that only the file repository of the settings has
+    private Path createFixtureRepository() throws IOException {
+        Path repository = directory.resolve("fixture");
+        Path artifactDirectory = repository.resolve("org/example/fixture-lib/1.0");
+        write(artifactDirectory.resolve("fixture-lib-1.0.pom"), "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId>"
+                + "<artifactId>fixture-lib</artifactId><version>1.0</version></project>\n");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        try (OutputStream output = Files.newOutputStream(artifactDirectory.resolve("fixture-lib-1.0.jar"))) {
+            new JarOutputStream(output, manifest).close();
+        }
+        return repository;
+    }
+
+    private Path writeSettings(Path fixtureRepository) throws IOException {
+        Path settingsFile = directory.resolve("settings.xml");
+        write(settingsFile, "<settings>\n"
+                + "  <mirrors><mirror><id>local</id><mirrorOf>central</mirrorOf><url>" + LOCAL_REPOSITORY.toUri() + "</url></mirror></mirrors>\n"
+                + "  <profiles><profile><id>fixture</id><repositories><repository><id>fixture</id><url>" + fixtureRepository.toUri() + "</url></repository></repositories></profile></profiles>\n"
+                + "  <activeProfiles><activeProfile>fixture</activeProfile></activeProfiles>\n"
+                + "</settings>\n");
+        return settingsFile;
+    }
+
+    private File createProject(String name) throws IOException {
+        Path project = directory.resolve("snapshots").resolve(name);
+        write(project.resolve("pom.xml"), "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>app</artifactId><version>1.0</version>"
+                + "<properties><maven.compiler.release>17</maven.compiler.release></properties>"
+                + "<dependencies><dependency><groupId>org.example</groupId><artifactId>fixture-lib</artifactId><version>1.0</version></dependency></dependencies></project>\n");
+        write(project.resolve("src/main/java/app/App.java"), "package app;\n\npublic class App {\n}\n");
+        return project.toFile();
+    }
+
+    private File createResultsDirectory(String snapshot) throws IOException {
+        return Files.createDirectories(directory.resolve("results").resolve("project").resolve(snapshot)).toFile();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
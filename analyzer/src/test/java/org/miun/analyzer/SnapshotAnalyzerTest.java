@@ -0,0 +1,117 @@
+package org.miun.analyzer;
+
+import junit.framework.TestCase;
+import org.miun.analyzer.support.CommandRunner;
+import org.miun.analyzer.support.ProcessResult;
+import org.miun.constants.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class SnapshotAnalyzerTest extends TestCase {
+    // the build runs offline against the user's local repository, so the test runs without network
+    private static final Path LOCAL_REPOSITORY = Path.of(System.getProperty("user.home"), ".m2", "repository");
+    private static final Path JACOCO_AGENT = LOCAL_REPOSITORY.resolve("org/jacoco/org.jacoco.agent/0.8.11/org.jacoco.agent-0.8.11-runtime.jar");
+    // the configured platform describes the analysis machine, the test runs on this one
+    private static final Platform PLATFORM = System.getProperty("os.name").startsWith("Windows") ? Platform.WINDOWS : Platform.LINUX;
+
+    private Path project;
+
+    @Override
+    protected void setUp() throws IOException {
+        project = Files.createTempDirectory("snapshot-analyzer-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(project)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void testTestCommandPassesHeapAndAgentToTests() throws IOException {
+        if (!Files.isDirectory(LOCAL_REPOSITORY.resolve("org/apache/maven/plugins/maven-surefire-plugin/3.2.5")) || !Files.isRegularFile(JACOCO_AGENT)) {
+            System.out.println("Skipping the test command test, Surefire 3.2.5 or the JaCoCo 0.8.11 agent is not in the local repository");
+            return;
+        }
+
+        write("pom.xml", "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>app</artifactId><version>1.0</version>"
+                + "<properties><maven.compiler.release>17</maven.compiler.release></properties>"
+                + "<dependencies><dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>3.8.1</version><scope>test</scope></dependency></dependencies>"
+                + "</project>\n");
+        write("src/test/java/app/HeapTest.java", "package app;\n\n"
+                + "public class HeapTest extends junit.framework.TestCase {\n"
+                + "    public void testHeap() throws Exception {\n"
+                + "        java.nio.file.Files.writeString(java.nio.file.Path.of(\"target/heap.txt\"), String.valueOf(Runtime.getRuntime().maxMemory()));\n"
+                + "    }\n"
+                + "}\n");
+
+        List<String> command = new ArrayList<>(SnapshotAnalyzer.getTestCommand(PLATFORM.getMvnCommand(), 200, JACOCO_AGENT.toString()));
+        command.addAll(List.of("-B", "-o"));
+        ProcessResult result = CommandRunner.runTestCommand(command, project.toFile(), project.resolve("maven.log.gz").toFile(), Map.of(),
+                Duration.ofMinutes(5));
+
+        assertEquals(String.join("\n", result.outputTail()), 0, result.exitCode());
+        long maxHeapMb = Long.parseLong(Files.readString(project.resolve("target/heap.txt"))) / (1024 * 1024);
+        assertTrue("max heap " + maxHeapMb + " MB", maxHeapMb > 100 && maxHeapMb <= 200);
+        assertTrue(new File(project.toFile(), "target/jacoco.exec").isFile());
+    }
+
+    public void testPartialTestCommandsSkipTestsOfUpstreamModules() throws IOException {
+        if (!Files.isDirectory(LOCAL_REPOSITORY.resolve("org/apache/maven/plugins/maven-install-plugin/3.1.2")) || !Files.isRegularFile(JACOCO_AGENT)) {
+            System.out.println("Skipping the partial build test, maven-install-plugin 3.1.2 or the JaCoCo 0.8.11 agent is not in the local repository");
+            return;
+        }
+
+        write("pom.xml", "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.0</version>"
+                + "<packaging>pom</packaging><modules><module>lib</module><module>app</module></modules></project>\n");
+        writeModule("lib", "", "LibTest");
+        writeModule("app", "<dependency><groupId>org.example</groupId><artifactId>lib</artifactId><version>1.0</version></dependency>", "AppTest");
+
+        // the modules are installed into a repository of the test, which reads the user's repository behind it
+        Path installRepository = project.resolve("repository");
+        List<String> options = List.of("-B", "-o", "-Dmaven.repo.local=" + installRepository, "-Dmaven.repo.local.tail=" + LOCAL_REPOSITORY);
+        for (List<String> command : SnapshotAnalyzer.getPartialTestCommands(PLATFORM.getMvnCommand(), 200, JACOCO_AGENT.toString(), "app")) {
+            List<String> arguments = new ArrayList<>(command);
+            arguments.addAll(options);
+            ProcessResult result = CommandRunner.runTestCommand(arguments, project.toFile(), project.resolve("maven.log.gz").toFile(), Map.of(),
+                    Duration.ofMinutes(5));
+            assertEquals(String.join("\n", result.outputTail()), 0, result.exitCode());
+        }
+
+        assertTrue(Files.isRegularFile(project.resolve("app/target/surefire-reports/TEST-app.AppTest.xml")));
+        assertTrue(Files.isRegularFile(project.resolve("app/target/jacoco.exec")));
+        assertFalse(Files.exists(project.resolve("lib/target/surefire-reports")));
+        assertTrue(Files.isRegularFile(installRepository.resolve("org/example/lib/1.0/lib-1.0.jar")));
+    }
+
+    private void writeModule(String module, String dependencies, String testName) throws IOException {
+        write(module + "/pom.xml", "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>" + module + "</artifactId><version>1.0</version>"
+                + "<properties><maven.compiler.release>17</maven.compiler.release></properties>"
+                + "<dependencies>" + dependencies + "<dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>3.8.1</version><scope>test</scope></dependency></dependencies>"
+                + "</project>\n");
+        write(module + "/src/main/java/" + module + "/Main.java", "package " + module + ";\n\npublic class Main {\n}\n");
+        write(module + "/src/test/java/" + module + "/" + testName + ".java", "package " + module + ";\n\n"
+                + "public class " + testName + " extends junit.framework.TestCase {\n"
+                + "    public void testMain() {\n"
+                + "        assertNotNull(new Main());\n"
+                + "    }\n"
+                + "}\n");
+    }
+
+    private void write(String file, String content) throws IOException {
+        Path path = project.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+}
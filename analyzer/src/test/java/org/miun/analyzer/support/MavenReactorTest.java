@@ -0,0 +1,128 @@
+package org.miun.analyzer.support;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class MavenReactorTest extends TestCase {
+    private Path project;
+
+    @Override
+    protected void setUp() throws IOException {
+        project = Files.createTempDirectory("maven-reactor-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(project)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void testSingleModuleProjectIsItsOwnModule() throws IOException {
+        write("pom.xml", pom("app", "<build><directory>out</directory></build>"));
+        write("src/main/java/app/App.java", "package app;\n");
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.toFile()), reactor.getModuleDirectories());
+        MavenReactor.Module module = reactor.getModule(project.toFile());
+        assertEquals("app", module.artifactId());
+        assertEquals(project.resolve("src/main/java").toAbsolutePath().toFile(), module.sourceDirectory());
+        assertEquals(project.resolve("out/classes").toAbsolutePath().toFile(), module.classesDirectory());
+    }
+
+    public void testAggregatorWithoutSourcesIsNoModule() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>core</module></modules>"));
+        write("core/pom.xml", pom("core", ""));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.resolve("core").toFile()), reactor.getModuleDirectories());
+    }
+
+    public void testProjectWithSourcesComesBeforeItsModules() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>core</module></modules>"));
+        write("src/main/java/app/App.java", "package app;\n");
+        write("core/pom.xml", pom("core", ""));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.toFile(), project.resolve("core").toFile()), reactor.getModuleDirectories());
+    }
+
+    public void testProfileModulesAreIncludedAndMarked() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>core</module></modules>"
+                + "<profiles><profile><id>extra</id><modules><module>core</module><module>extra</module></modules></profile></profiles>"));
+        write("core/pom.xml", pom("core", ""));
+        write("extra/pom.xml", pom("extra", ""));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.resolve("core").toFile(), project.resolve("extra").toFile()), reactor.getModuleDirectories());
+        // a module declared in the project and in a profile is kept where it is declared first
+        assertFalse(reactor.getModule(project.resolve("core").toFile()).inProfile());
+        assertTrue(reactor.getModule(project.resolve("extra").toFile()).inProfile());
+        assertTrue(reactor.hasProfileModules());
+    }
+
+    public void testModuleMayNameDirectoryOrPomFile() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>core/</module><module>alt/build.xml</module></modules>"));
+        write("core/pom.xml", pom("core", ""));
+        write("alt/build.xml", pom("alt", "<build><sourceDirectory>src</sourceDirectory></build>"));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.resolve("core").toFile(), project.resolve("alt").toFile()), reactor.getModuleDirectories());
+        MavenReactor.Module alt = reactor.getModule(project.resolve("alt").toFile());
+        assertEquals("alt", alt.artifactId());
+        assertEquals(project.resolve("alt/src").toAbsolutePath().toFile(), alt.sourceDirectory());
+    }
+
+    public void testMissingModuleIsSkipped() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>missing</module><module>core</module><module>empty</module></modules>"));
+        write("core/pom.xml", pom("core", ""));
+        Files.createDirectories(project.resolve("empty"));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        assertEquals(List.of(project.resolve("core").toFile()), reactor.getModuleDirectories());
+    }
+
+    public void testNestedAggregatorsAreScannedDepthFirst() throws IOException {
+        write("pom.xml", pom("parent", "<modules><module>platform</module><module>tools</module></modules>"));
+        write("platform/pom.xml", pom("platform", "<parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1</version></parent>"
+                + "<modules><module>api</module><module>impl</module><module>..</module></modules>"));
+        write("platform/api/pom.xml", pom("api", ""));
+        write("platform/impl/pom.xml", pom("impl", "<dependencies><dependency><groupId>org.example</groupId><artifactId>api</artifactId><version>1</version></dependency></dependencies>"));
+        write("tools/pom.xml", pom("tools", "<dependencies><dependency><groupId>org.example</groupId><artifactId>impl</artifactId><version>1</version></dependency></dependencies>"));
+
+        MavenReactor reactor = MavenReactor.scan(project.toFile());
+
+        // the module pointing back to the project is not scanned again
+        assertEquals(List.of(project.resolve("platform").toFile(), project.resolve("platform/api").toFile(), project.resolve("platform/impl").toFile(),
+                project.resolve("tools").toFile()), reactor.getModuleDirectories());
+        assertEquals(List.of(project.resolve("platform/api").toFile()), reactor.getUpstreamModules(project.resolve("platform/impl").toFile()));
+        assertEquals(List.of(project.resolve("platform/impl").toFile()), reactor.getUpstreamModules(project.resolve("tools").toFile()));
+        assertEquals(List.of(), reactor.getUpstreamModules(project.resolve("platform").toFile()));
+    }
+
+    private static String pom(String artifactId, String content) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>" + artifactId + "</artifactId><version>1</version>"
+                + content + "</project>\n";
+    }
+
+    private void write(String file, String content) throws IOException {
+        Path path = project.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+}
@@ -0,0 +1,69 @@
+package org.miun.analyzer.support;
+
+import junit.framework.TestCase;
+
+public class ModularityMetricsTest extends TestCase {
+    private static final double DELTA = 0.01;
+
+    // A -> B -> C: A sees 3 files, B 2 and C 1, so 6 of 9 pairs; all files form one module of the bottom layer
+    public void testChain() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{1}, {2}, {}});
+
+        assertEquals(3, metrics.files());
+        assertEquals(2, metrics.dependencies());
+        assertEquals(66.67, metrics.propagationCost(), DELTA);
+        assertEquals(0, metrics.decouplingLevel(), DELTA);
+    }
+
+    // A -> B -> C -> A: every file sees every file; the cycle is a single module
+    public void testCycle() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{1}, {2}, {0}});
+
+        assertEquals(100, metrics.propagationCost(), DELTA);
+        assertEquals(0, metrics.decouplingLevel(), DELTA);
+    }
+
+    // A -> B, A -> C, B -> D, C -> D: A sees 4 files, B and C 2 each and D 1, so 9 of 16 pairs; D is only used by the
+    // module of A, so it joins that module
+    public void testDiamond() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{1, 2}, {3}, {3}, {}});
+
+        assertEquals(4, metrics.dependencies());
+        assertEquals(56.25, metrics.propagationCost(), DELTA);
+        assertEquals(0, metrics.decouplingLevel(), DELTA);
+    }
+
+    // X -> L, Y -> L: X and Y are modules of a third of the files each, 2/9 each; L is a design rule that all files
+    // below it depend on, so it adds nothing
+    public void testSharedLibraryIsDesignRule() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{2}, {2}, {}});
+
+        assertEquals(55.56, metrics.propagationCost(), DELTA);
+        assertEquals(44.44, metrics.decouplingLevel(), DELTA);
+    }
+
+    // four modules of a quarter of the files each, 3/16 each
+    public void testIndependentFiles() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{}, {}, {}, {}});
+
+        assertEquals(25, metrics.propagationCost(), DELTA);
+        assertEquals(75, metrics.decouplingLevel(), DELTA);
+    }
+
+    // X -> Xh, X -> I, Y -> Yh, Y -> I: the bottom layer has the modules {X, Xh} and {Y, Yh}, 6/25 each; I is used by
+    // 2 of the 4 files below it, 1/5 * 1/2
+    public void testLayeredModules() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[][]{{1, 4}, {}, {3, 4}, {}, {}});
+
+        assertEquals(36, metrics.propagationCost(), DELTA);
+        assertEquals(58, metrics.decouplingLevel(), DELTA);
+    }
+
+    public void testEmptyGraph() {
+        ModularityMetrics metrics = ModularityMetrics.of(new int[0][]);
+
+        assertEquals(0, metrics.files());
+        assertEquals(0, metrics.propagationCost(), DELTA);
+        assertEquals(0, metrics.decouplingLevel(), DELTA);
+    }
+}
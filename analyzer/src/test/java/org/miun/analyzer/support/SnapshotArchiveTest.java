@@ -0,0 +1,62 @@
+package org.miun.analyzer.support;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SnapshotArchiveTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-archive-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void testExtractRestoresExecutableMode() throws IOException {
+        Path archive = directory.resolve("2020-01-01.zip");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(archive))) {
+            write(zipOutputStream, "mvnw", 0100755);
+            write(zipOutputStream, "src/App.java", 0100644);
+            write(zipOutputStream, "pom.xml", -1);
+        }
+
+        Path extracted = SnapshotArchive.extract(archive.toFile(), directory.resolve("scratch"));
+
+        assertTrue(Files.isExecutable(extracted.resolve("mvnw")));
+        assertFalse(Files.isExecutable(extracted.resolve("src/App.java")));
+        assertFalse(Files.isExecutable(extracted.resolve("pom.xml")));
+    }
+
+    // an entry as the downloader writes it, with the mode in the Info-ZIP Unix extra field unless it is negative
+    private static void write(ZipOutputStream zipOutputStream, String path, int mode) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        if (mode >= 0) {
+            ByteBuffer unixData = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN).putShort((short) mode);
+            CRC32 crc = new CRC32();
+            crc.update(unixData.array());
+            entry.setExtra(ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN)
+                    .putShort((short) 0x756e).putShort((short) 14).putInt((int) crc.getValue()).put(unixData.array()).array());
+        }
+        zipOutputStream.putNextEntry(entry);
+        zipOutputStream.write(path.getBytes());
+        zipOutputStream.closeEntry();
+    }
+}
@@ -0,0 +1,73 @@
+package org.miun.analyzer.support;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class SnapshotWorkspaceTest extends TestCase {
+    private Path directory;
+    private Path snapshot;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-workspace-test");
+        snapshot = directory.resolve("snapshot");
+        write(snapshot.resolve("pom.xml"), "<project/>");
+        write(snapshot.resolve("src/App.java"), "class App {}");
+        write(snapshot.resolve("target/classes/App.class"), "");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void testCopiesFilesAndSkipsBuildOutput() throws IOException {
+        Path workspace = SnapshotWorkspace.create(snapshot, directory.resolve("workspaces"), false);
+
+        Files.writeString(workspace.resolve("src/App.java"), "class Changed {}");
+
+        assertEquals("class App {}", Files.readString(snapshot.resolve("src/App.java")));
+        assertFalse(Files.exists(workspace.resolve("target")));
+        assertEquals(Files.size(snapshot.resolve("pom.xml")) + Files.size(snapshot.resolve("src/App.java")), SnapshotWorkspace.measure(snapshot));
+    }
+
+    public void testHardLinksSkipSharedFiles() throws IOException {
+        if (!supportsLinkCount()) {
+            System.out.println("Skipping the hard link test, the file system reports no link counts");
+            return;
+        }
+        // the snapshot file is a second link to a blob, as in deduplicated storage
+        Path blob = directory.resolve("objects/blob");
+        write(blob, "shared");
+        Files.createLink(snapshot.resolve("src/Shared.java"), blob);
+
+        Path workspace = SnapshotWorkspace.create(snapshot, directory.resolve("workspaces"), true);
+
+        assertTrue(Files.isSameFile(snapshot.resolve("pom.xml"), workspace.resolve("pom.xml")));
+        assertFalse(Files.isSameFile(blob, workspace.resolve("src/Shared.java")));
+        assertEquals("shared", Files.readString(workspace.resolve("src/Shared.java")));
+    }
+
+    private boolean supportsLinkCount() {
+        try {
+            Files.getAttribute(snapshot.resolve("pom.xml"), "unix:nlink");
+            return true;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
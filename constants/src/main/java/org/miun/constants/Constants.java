@@ -1,5 +1,6 @@
 package org.miun.constants;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -8,16 +9,57 @@ import java.util.Properties;
 
 public class Constants {
     public static String DESIGNITE_JAR_PATH;
-    public static String JACOCO_CLI_PATH;
     public static String JACOCO_AGENT_PATH;
     public static String DV8_CONSOLE;
     public static String BASE_SNAPSHOT_DIRECTORY;
     public static String RESULTS_DIRECTORY;
+    public static String SCRATCH_DIRECTORY;
+    public static String WORKSPACE_DIRECTORY;
+    public static boolean WORKSPACE_HARD_LINKS;
     public static boolean ANALYZE_ARCHITECTURAL_SMELLS;
     public static boolean ANALYZE_TESTABILITY;
     public static boolean ANALYZE_MODULARITY;
+    public static boolean DV8_CROSS_CHECK;
+    public static int ANALYSIS_CONCURRENCY;
+    public static int DESIGNITE_CONCURRENCY;
+    public static int DV8_CONCURRENCY;
+    public static int TEST_CONCURRENCY;
+    public static int DESIGNITE_MEMORY_MB;
+    public static int DV8_MEMORY_MB;
+    public static int TEST_MEMORY_MB;
+    public static int ANALYSIS_MEMORY_BUDGET_MB;
+    public static int DESIGNITE_TIMEOUT_MINUTES;
+    public static int DV8_TIMEOUT_MINUTES;
+    public static int TEST_TIMEOUT_MINUTES;
+    public static boolean DESIGNITE_TOOL_HOST;
+    public static int TOOL_HOST_MAX_RUNS;
+    public static boolean CLASS_DATA_SHARING_ENABLED;
+    public static String CLASS_DATA_SHARING_DIRECTORY;
+    public static boolean RESULT_CACHE;
+    public static String RESULT_CACHE_DIRECTORY;
+    public static boolean DEPENDENCY_PRE_RESOLUTION;
+    public static String SHARED_MAVEN_REPOSITORY;
+    public static String MAVEN_SETTINGS_FILE;
+    public static boolean COST_BASED_SCHEDULING;
+    public static String COST_MODEL_FILE;
     public static int WEEK_INTERVAL;
     public static Platform PLATFORM;
+    public static SnapshotExportMode SNAPSHOT_EXPORT_MODE;
+    public static SnapshotStorage SNAPSHOT_STORAGE;
+    public static List<String> SNAPSHOT_INCLUDES;
+    public static List<String> SNAPSHOT_EXCLUDES;
+    public static int EXPORT_THREADS;
+    public static int CLONE_CONCURRENCY;
+    public static boolean INCREMENTAL_DOWNLOAD;
+    public static String MIRROR_CACHE_DIRECTORY;
+    public static long MIRROR_CACHE_MAX_SIZE_MB;
+    public static int EXPORT_CONCURRENCY;
+    public static CommitTraversal COMMIT_TRAVERSAL;
+    public static SamplingStrategy SAMPLING_STRATEGY;
+    public static int SAMPLING_MIN_CHANGED_LINES;
+    public static int SAMPLING_MIN_CHANGED_FILES;
+    public static int SAMPLING_MAX_GAP_WEEKS;
+    public static int SAMPLING_TARGET_SNAPSHOTS;
     public static String FAIL_IF_NO_TESTS_FOUND;
     public static List<String> OSS_PROJECTS;
 
@@ -39,20 +81,89 @@ public class Constants {
             }
 
             DESIGNITE_JAR_PATH = config.getProperty("designiteJarPath");
-            JACOCO_CLI_PATH = config.getProperty("jacocoCliPath");
             JACOCO_AGENT_PATH = config.getProperty("jacocoAgentPath");
             DV8_CONSOLE = config.getProperty("dv8ConsolePath");
             BASE_SNAPSHOT_DIRECTORY = config.getProperty("snapshotsDirectory");
             RESULTS_DIRECTORY = config.getProperty("resultsDirectory");
+            SCRATCH_DIRECTORY = getStringProperty(config, "scratchDirectory", System.getProperty("java.io.tmpdir"));
+            WORKSPACE_DIRECTORY = getStringProperty(config, "workspaceDirectory", new File(SCRATCH_DIRECTORY, "asat-workspaces").getPath());
+            WORKSPACE_HARD_LINKS = "true".equalsIgnoreCase(config.getProperty("workspaceHardLinks"));
             OSS_PROJECTS = Arrays.asList(config.getProperty("projectUrls").split(","));
             ANALYZE_ARCHITECTURAL_SMELLS = config.getProperty("analyzeArchitecturalSmells").equalsIgnoreCase("true");
             ANALYZE_TESTABILITY = !config.getProperty("analyzeTestability").equalsIgnoreCase("false");
             ANALYZE_MODULARITY = !config.getProperty("analyzeModularity").equalsIgnoreCase("false");
-            WEEK_INTERVAL = config.getProperty("weekInterval") == null ? Integer.parseInt(config.getProperty("weekInterval")) : 4;
+            DV8_CROSS_CHECK = "true".equalsIgnoreCase(config.getProperty("dv8CrossCheck"));
+            DESIGNITE_CONCURRENCY = getIntProperty(config, "designiteConcurrency", 2);
+            DV8_CONCURRENCY = getIntProperty(config, "dv8Concurrency", 1);
+            TEST_CONCURRENCY = getIntProperty(config, "testConcurrency", 1);
+            ANALYSIS_CONCURRENCY = getIntProperty(config, "analysisConcurrency", DESIGNITE_CONCURRENCY + DV8_CONCURRENCY + TEST_CONCURRENCY);
+            DESIGNITE_MEMORY_MB = getIntProperty(config, "designiteMemoryMb", 2048);
+            DV8_MEMORY_MB = getIntProperty(config, "dv8MemoryMb", 2048);
+            TEST_MEMORY_MB = getIntProperty(config, "testMemoryMb", 2048);
+            ANALYSIS_MEMORY_BUDGET_MB = getIntProperty(config, "analysisMemoryBudgetMb", 0);
+            DESIGNITE_TIMEOUT_MINUTES = getIntProperty(config, "designiteTimeoutMinutes", 60);
+            DV8_TIMEOUT_MINUTES = getIntProperty(config, "dv8TimeoutMinutes", 60);
+            TEST_TIMEOUT_MINUTES = getIntProperty(config, "testTimeoutMinutes", 120);
+            DESIGNITE_TOOL_HOST = "true".equalsIgnoreCase(config.getProperty("designiteToolHost"));
+            TOOL_HOST_MAX_RUNS = getIntProperty(config, "toolHostMaxRuns", 25);
+            CLASS_DATA_SHARING_ENABLED = !"false".equalsIgnoreCase(config.getProperty("classDataSharing"));
+            CLASS_DATA_SHARING_DIRECTORY = getStringProperty(config, "classDataSharingDirectory", new File(BASE_SNAPSHOT_DIRECTORY, ".cds").getPath());
+            RESULT_CACHE = !"false".equalsIgnoreCase(config.getProperty("resultCache"));
+            RESULT_CACHE_DIRECTORY = getStringProperty(config, "resultCacheDirectory", new File(BASE_SNAPSHOT_DIRECTORY, ".results-cache").getPath());
+            DEPENDENCY_PRE_RESOLUTION = !"false".equalsIgnoreCase(config.getProperty("dependencyPreResolution"));
+            SHARED_MAVEN_REPOSITORY = getStringProperty(config, "sharedMavenRepository", new File(BASE_SNAPSHOT_DIRECTORY, ".maven-repository").getPath());
+            MAVEN_SETTINGS_FILE = getStringProperty(config, "mavenSettingsFile", null);
+            COST_BASED_SCHEDULING = !"false".equalsIgnoreCase(config.getProperty("costBasedScheduling"));
+            COST_MODEL_FILE = getStringProperty(config, "costModelFile", new File(BASE_SNAPSHOT_DIRECTORY, ".cost-model.csv").getPath());
+            WEEK_INTERVAL = getIntProperty(config, "weekInterval", 4);
             PLATFORM = config.getProperty("platform").equalsIgnoreCase("linux") ? Platform.LINUX : Platform.WINDOWS;
+            SNAPSHOT_EXPORT_MODE = "checkout".equalsIgnoreCase(config.getProperty("snapshotExportMode")) ? SnapshotExportMode.CHECKOUT : SnapshotExportMode.TREE;
+            SNAPSHOT_STORAGE = getSnapshotStorage(config.getProperty("snapshotStorage"));
+            if (SNAPSHOT_EXPORT_MODE == SnapshotExportMode.CHECKOUT && SNAPSHOT_STORAGE != SnapshotStorage.COPY) {
+                throw new IllegalArgumentException("snapshotStorage " + SNAPSHOT_STORAGE.name().toLowerCase() + " requires snapshotExportMode tree.");
+            }
+            SNAPSHOT_INCLUDES = getListProperty(config, "snapshotIncludes");
+            SNAPSHOT_EXCLUDES = getListProperty(config, "snapshotExcludes");
+            EXPORT_THREADS = getIntProperty(config, "exportThreads", Runtime.getRuntime().availableProcessors());
+            CLONE_CONCURRENCY = getIntProperty(config, "cloneConcurrency", 2);
+            EXPORT_CONCURRENCY = getIntProperty(config, "exportConcurrency", 2);
+            INCREMENTAL_DOWNLOAD = "true".equalsIgnoreCase(config.getProperty("incrementalDownload"));
+            MIRROR_CACHE_DIRECTORY = getStringProperty(config, "mirrorCacheDirectory", new File(BASE_SNAPSHOT_DIRECTORY, ".mirrors").getPath());
+            MIRROR_CACHE_MAX_SIZE_MB = getIntProperty(config, "mirrorCacheMaxSizeMb", 0);
+            COMMIT_TRAVERSAL = "first-parent".equalsIgnoreCase(config.getProperty("commitTraversal")) ? CommitTraversal.FIRST_PARENT : CommitTraversal.GRAPH;
+            SAMPLING_STRATEGY = "change".equalsIgnoreCase(config.getProperty("samplingStrategy")) ? SamplingStrategy.CHANGE : SamplingStrategy.INTERVAL;
+            SAMPLING_MIN_CHANGED_LINES = getIntProperty(config, "samplingMinChangedLines", 0);
+            SAMPLING_MIN_CHANGED_FILES = getIntProperty(config, "samplingMinChangedFiles", 0);
+            SAMPLING_MAX_GAP_WEEKS = getIntProperty(config, "samplingMaxGapWeeks", 0);
+            SAMPLING_TARGET_SNAPSHOTS = getIntProperty(config, "samplingTargetSnapshots", 0);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private static SnapshotStorage getSnapshotStorage(String value) {
+        if ("dedup".equalsIgnoreCase(value)) {
+            return SnapshotStorage.DEDUP;
+        }
+        return "archive".equalsIgnoreCase(value) ? SnapshotStorage.ARCHIVE : SnapshotStorage.COPY;
+    }
+
+    private static String getStringProperty(Properties config, String key, String defaultValue) {
+        String value = config.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static List<String> getListProperty(Properties config, String key) {
+        String value = config.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    private static int getIntProperty(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
 }
 
@@ -0,0 +1,6 @@
+package org.miun.constants;
+
+public enum SamplingStrategy {
+    INTERVAL,
+    CHANGE
+}
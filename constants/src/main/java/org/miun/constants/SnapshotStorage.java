@@ -0,0 +1,7 @@
+package org.miun.constants;
+
+public enum SnapshotStorage {
+    COPY,
+    DEDUP,
+    ARCHIVE
+}
@@ -28,11 +28,18 @@ public class DataExtractor {
     private static final String ALL_PACKAGES_KEY = "<All packages>";
     private static final String DECOUPLING_LEVEL = "Decoupling Level";
     private static final String PROPAGATION_COST = "Propagation Cost";
+    // columns of the built-in modularity engine's results by the metric names DV8 uses
+    private static final Map<String, String> MODULARITY_COLUMNS = Map.of(
+            DECOUPLING_LEVEL, "DecouplingLevel",
+            PROPAGATION_COST, "PropagationCost"
+    );
 
+    // snapshot names start with their date and may carry a commit id suffix when several share a date
     private static final Comparator<String> dateComparator = (d1, d2) -> {
-        LocalDate localDate1 = LocalDate.parse(d1);
-        LocalDate localDate2 = LocalDate.parse(d2);
-        return localDate1.compareTo(localDate2);
+        LocalDate localDate1 = LocalDate.parse(d1.substring(0, 10));
+        LocalDate localDate2 = LocalDate.parse(d2.substring(0, 10));
+        int dateComparison = localDate1.compareTo(localDate2);
+        return dateComparison != 0 ? dateComparison : d1.compareTo(d2);
     };
 
     public void generateOutputFiles() throws IOException {
@@ -40,12 +47,14 @@ public class DataExtractor {
 
         for (File project : Objects.requireNonNull(snapshotResults.listFiles(File::isDirectory))) {
             TreeMap<String, List<String>> sortedMap = new TreeMap<>(dateComparator);
-            for (File snapshot : Objects.requireNonNull(project.listFiles(File::isDirectory))) {
+            File[] snapshots = Objects.requireNonNull(project.listFiles(File::isDirectory));
+            ModularitySource modularitySource = getModularitySource(project, snapshots);
+            for (File snapshot : snapshots) {
                 Map<String, Map<String, Integer>> systemSmells = getSystemSmells(snapshot);
                 Map<String, List<TypeMetricsData>> systemFanInFanOutData = getSystemFanInFanOutData(snapshot);
                 Map<String, List<TestCoverageData>> systemTestCoverageData = getSystemTestCoverageData(snapshot);
-                double decouplingLevel = getSystemMetric(snapshot, DECOUPLING_LEVEL);
-                double propagationCost = getSystemMetric(snapshot, PROPAGATION_COST);
+                double decouplingLevel = getSystemMetric(snapshot, modularitySource, DECOUPLING_LEVEL);
+                double propagationCost = getSystemMetric(snapshot, modularitySource, PROPAGATION_COST);
                 double averageDegree = getDenseStructureAverageDegree(snapshot);
                 writeToOutputCsv(new File(snapshot, "output.csv"), systemSmells, systemFanInFanOutData, systemTestCoverageData, decouplingLevel, propagationCost, averageDegree);
 
@@ -60,6 +69,7 @@ public class DataExtractor {
                 }
             }
             writeTestDataSummary(project, sortedMap);
+            writeModularityCrossCheck(project, snapshots);
             writeCombinedPackagesToCsv(snapshotResults);
         }
     }
@@ -177,9 +187,80 @@ public class DataExtractor {
         return systemTestCoverageData;
     }
 
-    private static double getSystemMetric(File snapshot, String metric) throws IOException {
-        File analysisSummary = new File(snapshot.getAbsolutePath() + "/DV8Results/dv8-analysis-result/analysis-summary.html");
-        Document document = Jsoup.parse(analysisSummary, "UTF-8");
+    // the metrics of the engine and DV8 differ, so a project's series takes all of its values from one of them
+    private static ModularitySource getModularitySource(File project, File[] snapshots) {
+        ModularitySource source;
+        if (Arrays.stream(snapshots).allMatch(snapshot -> getModularityResults(snapshot).exists())) {
+            source = ModularitySource.ENGINE;
+        } else if (Arrays.stream(snapshots).allMatch(snapshot -> getDV8Summary(snapshot).exists())) {
+            source = ModularitySource.DV8;
+        } else {
+            System.err.printf("Project %s has neither the engine's nor DV8's modularity results for all snapshots, its metrics are left at -1%n", project.getName());
+            return ModularitySource.NONE;
+        }
+        System.out.printf("Project %s: modularity metrics from %s%n", project.getName(), source);
+        return source;
+    }
+
+    private static double getSystemMetric(File snapshot, ModularitySource source, String metric) throws IOException {
+        return switch (source) {
+            case ENGINE -> getModularityMetric(getModularityResults(snapshot), metric);
+            case DV8 -> getDV8Metric(snapshot, metric);
+            case NONE -> -1.0;
+        };
+    }
+
+    /**
+     * Writes the metrics of both sources side by side for the snapshots that have both, and logs the largest
+     * differences, so that a switch from DV8 to the engine can be judged on the project's own history.
+     */
+    private static void writeModularityCrossCheck(File project, File[] snapshots) throws IOException {
+        List<File> comparable = Arrays.stream(snapshots)
+                .filter(snapshot -> getModularityResults(snapshot).exists() && getDV8Summary(snapshot).exists())
+                .sorted(Comparator.comparing(File::getName, dateComparator))
+                .toList();
+        if (comparable.isEmpty()) {
+            return;
+        }
+
+        double maxPropagationCostDifference = 0;
+        double maxDecouplingLevelDifference = 0;
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(project, "modularity-crosscheck.csv")))) {
+            bw.write("Date,EnginePropagationCost,DV8PropagationCost,PropagationCostDifference,EngineDecouplingLevel,DV8DecouplingLevel,DecouplingLevelDifference\n");
+            for (File snapshot : comparable) {
+                double enginePropagationCost = getModularityMetric(getModularityResults(snapshot), PROPAGATION_COST);
+                double dv8PropagationCost = getDV8Metric(snapshot, PROPAGATION_COST);
+                double engineDecouplingLevel = getModularityMetric(getModularityResults(snapshot), DECOUPLING_LEVEL);
+                double dv8DecouplingLevel = getDV8Metric(snapshot, DECOUPLING_LEVEL);
+                bw.write(String.format(Locale.US, "%s,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n", snapshot.getName(),
+                        enginePropagationCost, dv8PropagationCost, enginePropagationCost - dv8PropagationCost,
+                        engineDecouplingLevel, dv8DecouplingLevel, engineDecouplingLevel - dv8DecouplingLevel));
+                maxPropagationCostDifference = Math.max(maxPropagationCostDifference, Math.abs(enginePropagationCost - dv8PropagationCost));
+                maxDecouplingLevelDifference = Math.max(maxDecouplingLevelDifference, Math.abs(engineDecouplingLevel - dv8DecouplingLevel));
+            }
+        }
+        System.out.printf(Locale.US, "Project %s: engine and DV8 differ by up to %.2f points in propagation cost and %.2f in decoupling level over %d snapshots%n",
+                project.getName(), maxPropagationCostDifference, maxDecouplingLevelDifference, comparable.size());
+    }
+
+    private static File getModularityResults(File snapshot) {
+        return new File(snapshot, "ModularityResults/modularity.csv");
+    }
+
+    private static File getDV8Summary(File snapshot) {
+        return new File(snapshot, "DV8Results/dv8-analysis-result/analysis-summary.html");
+    }
+
+    private static double getModularityMetric(File modularityResults, String metric) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(modularityResults))) {
+            List<String> header = Arrays.asList(reader.readLine().split(","));
+            String[] values = reader.readLine().split(",");
+            return Double.parseDouble(values[header.indexOf(MODULARITY_COLUMNS.get(metric))]);
+        }
+    }
+
+    private static double getDV8Metric(File snapshot, String metric) throws IOException {
+        Document document = Jsoup.parse(getDV8Summary(snapshot), "UTF-8");
         Elements listItems = document.select("li");
         for (Element listItem: listItems) {
             String listItemText = listItem.text();
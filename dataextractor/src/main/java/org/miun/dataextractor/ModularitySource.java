@@ -0,0 +1,10 @@
+package org.miun.dataextractor;
+
+/**
+ * The results the propagation cost and decoupling level of a project's snapshots are taken from.
+ */
+public enum ModularitySource {
+    ENGINE,
+    DV8,
+    NONE
+}
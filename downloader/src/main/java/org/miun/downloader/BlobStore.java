@@ -0,0 +1,66 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+/**
+ * Keeps a single copy of every file version of a repository, keyed by its git object id,
+ * and materializes snapshot files as hard links to it.
+ */
+public class BlobStore {
+    private final Repository repository;
+    private final Path storeDirectory;
+
+    public BlobStore(Repository repository, Path storeDirectory) {
+        this.repository = repository;
+        this.storeDirectory = storeDirectory;
+    }
+
+    public long materialize(ObjectId blobId, boolean executable, Path targetPath) throws IOException {
+        Path blobPath = getBlobPath(blobId, executable);
+        if (!Files.exists(blobPath)) {
+            store(blobId, executable, blobPath);
+        }
+
+        try {
+            Files.createLink(targetPath, blobPath);
+        } catch (UnsupportedOperationException | IOException e) {
+            // e.g. the snapshot directory is on another file system or the link count limit is reached
+            Files.copy(blobPath, targetPath, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        return Files.size(blobPath);
+    }
+
+    private void store(ObjectId blobId, boolean executable, Path blobPath) throws IOException {
+        Files.createDirectories(blobPath.getParent());
+
+        // blobs are written under a temporary name first so concurrent writers never expose partial files
+        Path tempPath = blobPath.resolveSibling(blobPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempPath)) {
+                repository.open(blobId, OBJ_BLOB).copyTo(outputStream);
+            }
+            if (executable) {
+                tempPath.toFile().setExecutable(true);
+            }
+            Files.move(tempPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    // executable files get their own entry since hard links share permissions
+    private Path getBlobPath(ObjectId blobId, boolean executable) {
+        String name = blobId.name();
+        return storeDirectory.resolve(name.substring(0, 2)).resolve(executable ? name.substring(2) + "-x" : name.substring(2));
+    }
+}
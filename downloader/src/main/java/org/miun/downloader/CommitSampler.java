@@ -0,0 +1,158 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.miun.constants.CommitTraversal;
+import org.miun.constants.SamplingStrategy;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the commits to snapshot in a single walk over the history, oldest first.
+ */
+public class CommitSampler {
+    private final CommitTraversal traversal;
+    private final SamplingPolicy policy;
+
+    public CommitSampler(CommitTraversal traversal, SamplingPolicy policy) {
+        this.traversal = traversal;
+        this.policy = policy;
+    }
+
+    public List<SnapshotCommit> sample(Repository repository) throws IOException {
+        return sample(repository, null);
+    }
+
+    /**
+     * Continues the sampling after a previously recorded snapshot; only newer snapshots are returned.
+     */
+    public List<SnapshotCommit> sample(Repository repository, SnapshotCommit lastSnapshot) throws IOException {
+        ObjectId head = repository.resolve("HEAD");
+        if (head == null) {
+            return new ArrayList<>();
+        }
+
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.setFirstParent(traversal == CommitTraversal.FIRST_PARENT);
+            revWalk.sort(RevSort.COMMIT_TIME_DESC);
+            revWalk.sort(RevSort.REVERSE, true);
+            revWalk.markStart(revWalk.parseCommit(head));
+            if (lastSnapshot != null && repository.getObjectDatabase().has(lastSnapshot.commitId())) {
+                revWalk.markUninteresting(revWalk.parseCommit(lastSnapshot.commitId()));
+            }
+
+            LocalDate prevCommitDate = lastSnapshot == null ? null : toLocalDate(lastSnapshot.commitDate());
+            if (policy.strategy() == SamplingStrategy.CHANGE) {
+                return sampleByChange(getCommitChanges(repository, revWalk), prevCommitDate);
+            }
+            return sampleByInterval(revWalk, prevCommitDate);
+        }
+    }
+
+    private List<SnapshotCommit> sampleByInterval(RevWalk revWalk, LocalDate prevCommitDate) {
+        List<SnapshotCommit> sampledCommits = new ArrayList<>();
+
+        for (RevCommit commit : revWalk) {
+            Date commitDate = getCommitDate(commit);
+            LocalDate localDate = toLocalDate(commitDate);
+
+            if (prevCommitDate == null || localDate.isAfter(prevCommitDate.plusWeeks(policy.intervalWeeks()))) {
+                sampledCommits.add(new SnapshotCommit(commit.copy(), commitDate));
+                prevCommitDate = localDate;
+            }
+        }
+
+        return sampledCommits;
+    }
+
+    private List<SnapshotCommit> sampleByChange(List<CommitChange> commitChanges, LocalDate prevCommitDate) {
+        List<SnapshotCommit> sampledCommits = new ArrayList<>();
+
+        long minChangedLines = policy.minChangedLines();
+        if (policy.targetSnapshots() > 0) {
+            long totalChangedLines = commitChanges.stream().mapToLong(CommitChange::changedLines).sum();
+            minChangedLines = Math.max(minChangedLines, (totalChangedLines + policy.targetSnapshots() - 1) / policy.targetSnapshots());
+        }
+
+        long changedLines = 0;
+        Set<String> changedFiles = new HashSet<>();
+        for (CommitChange commitChange : commitChanges) {
+            LocalDate localDate = toLocalDate(commitChange.snapshotCommit().commitDate());
+            changedLines += commitChange.changedLines();
+            changedFiles.addAll(commitChange.changedFiles());
+
+            // the oldest commit of a fresh download is always the first snapshot, later ones need a Java change
+            boolean firstSnapshot = prevCommitDate == null;
+            boolean enoughChange = changedLines >= minChangedLines && changedFiles.size() >= policy.minChangedFiles();
+            boolean gapExceeded = policy.maxGapWeeks() > 0 && !firstSnapshot && localDate.isAfter(prevCommitDate.plusWeeks(policy.maxGapWeeks()));
+
+            if (firstSnapshot || (!changedFiles.isEmpty() && (enoughChange || gapExceeded))) {
+                sampledCommits.add(commitChange.snapshotCommit());
+                prevCommitDate = localDate;
+                changedLines = 0;
+                changedFiles.clear();
+            }
+        }
+
+        return sampledCommits;
+    }
+
+    // every commit is diffed once against its first parent, changes since the last snapshot are summed up from these
+    private List<CommitChange> getCommitChanges(Repository repository, RevWalk revWalk) throws IOException {
+        List<CommitChange> commitChanges = new ArrayList<>();
+
+        try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            diffFormatter.setRepository(repository);
+            diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+
+            for (RevCommit commit : revWalk) {
+                SnapshotCommit snapshotCommit = new SnapshotCommit(commit.copy(), getCommitDate(commit));
+
+                // when the whole graph is walked, the changes a merge brings in are already counted on the merged commits
+                if (commit.getParentCount() > 1 && traversal == CommitTraversal.GRAPH) {
+                    commitChanges.add(new CommitChange(snapshotCommit, 0, List.of()));
+                    continue;
+                }
+
+                RevCommit parent = commit.getParentCount() > 0 ? revWalk.parseCommit(commit.getParent(0)) : null;
+                int changedLines = 0;
+                List<String> changedFiles = new ArrayList<>();
+                for (DiffEntry diffEntry : diffFormatter.scan(parent == null ? null : parent.getTree(), commit.getTree())) {
+                    changedFiles.add(diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE ? diffEntry.getOldPath() : diffEntry.getNewPath());
+                    for (Edit edit : diffFormatter.toFileHeader(diffEntry).toEditList()) {
+                        changedLines += edit.getLengthA() + edit.getLengthB();
+                    }
+                }
+                commitChanges.add(new CommitChange(snapshotCommit, changedLines, changedFiles));
+            }
+        }
+
+        return commitChanges;
+    }
+
+    private static Date getCommitDate(RevCommit commit) {
+        return Date.from(commit.getAuthorIdent().getWhen().toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private record CommitChange(SnapshotCommit snapshotCommit, int changedLines, List<String> changedFiles) {
+    }
+}
@@ -0,0 +1,54 @@
+package org.miun.downloader;
+
+import java.util.Locale;
+
+/**
+ * Reports per repository progress and write throughput of a download.
+ */
+public class DownloadProgress {
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final String repoName;
+    private final long startTime = System.nanoTime();
+    private int totalSnapshots;
+    private int writtenSnapshots;
+    private long writtenFiles;
+    private long writtenBytes;
+    private long skippedBytes;
+
+    public DownloadProgress(String repoName) {
+        this.repoName = repoName;
+    }
+
+    public void repositoryReady() {
+        System.out.printf(Locale.US, "[%s] repository cloned or fetched in %.1f s%n", repoName, getElapsedSeconds());
+    }
+
+    public synchronized void sampled(int totalSnapshots) {
+        this.totalSnapshots = totalSnapshots;
+        System.out.printf("[%s] %d snapshots selected%n", repoName, totalSnapshots);
+    }
+
+    public synchronized void snapshotWritten(String snapshotName, long files, long bytes, long skippedFiles, long skippedBytes) {
+        writtenSnapshots++;
+        writtenFiles += files;
+        writtenBytes += bytes;
+        this.skippedBytes += skippedBytes;
+        System.out.printf(Locale.US, "[%s] snapshot %s written (%d/%d), %d files, %.1f MB, %.1f MB/s, %d files filtered out saving %.1f MB%n",
+                repoName, snapshotName, writtenSnapshots, totalSnapshots, files, bytes / BYTES_PER_MB, getThroughput(), skippedFiles, skippedBytes / BYTES_PER_MB);
+    }
+
+    public synchronized void finished() {
+        System.out.printf(Locale.US, "[%s] done: %d snapshots, %d files, %.1f MB in %.1f s (%.1f MB/s), %.1f MB saved by path filters%n",
+                repoName, writtenSnapshots, writtenFiles, writtenBytes / BYTES_PER_MB, getElapsedSeconds(), getThroughput(), skippedBytes / BYTES_PER_MB);
+    }
+
+    private double getThroughput() {
+        double elapsedSeconds = getElapsedSeconds();
+        return elapsedSeconds > 0 ? writtenBytes / BYTES_PER_MB / elapsedSeconds : 0.0;
+    }
+
+    private double getElapsedSeconds() {
+        return (System.nanoTime() - startTime) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,4 @@
+package org.miun.downloader;
+
+public record ExportResult(SnapshotManifest manifest, long files, long bytes, long skippedFiles, long skippedBytes) {
+}
@@ -0,0 +1,218 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bare mirrors of the downloaded repositories, keyed by URL and shared between runs.
+ * A mirror is locked while it is used, so concurrent downloader processes never fetch or evict it underneath each other.
+ */
+public class MirrorCache {
+    private final Path cacheDirectory;
+    private final long maxSizeBytes;
+    private final Map<String, ReentrantLock> localLocks = new ConcurrentHashMap<>();
+
+    public MirrorCache(Path cacheDirectory, long maxSizeBytes) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Locks the mirror of the given repository and clones or fetches it. The returned mirror must be closed to release the lock.
+     */
+    public Mirror acquire(String repoUrl, String repoName) throws IOException, GitAPIException {
+        Files.createDirectories(cacheDirectory);
+        String key = repoName + "-" + hash(repoUrl);
+
+        Mirror mirror = lock(key);
+        try {
+            if (Files.isDirectory(mirror.getDirectory().toPath())) {
+                fetch(mirror.getDirectory());
+            } else {
+                cloneMirror(repoUrl, mirror.getDirectory().toPath());
+            }
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            mirror.close();
+            throw e;
+        }
+        return mirror;
+    }
+
+    /**
+     * Deletes the least recently used mirrors that are not in use until the cache fits its size limit.
+     */
+    public void evict() throws IOException {
+        if (maxSizeBytes <= 0 || !Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+
+        List<Path> mirrors = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            // unfinished clones of other processes end in .tmp and are never evicted
+            paths.filter(path -> Files.isDirectory(path) && !path.getFileName().toString().endsWith(".tmp")).forEach(mirrors::add);
+        }
+        mirrors.sort(Comparator.comparing(MirrorCache::getLastUsed));
+
+        long totalSize = 0;
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path mirror : mirrors) {
+            long size = getSize(mirror);
+            sizes.put(mirror, size);
+            totalSize += size;
+        }
+
+        for (Path mirrorDirectory : mirrors) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+
+            String key = mirrorDirectory.getFileName().toString();
+            ReentrantLock localLock = localLocks.computeIfAbsent(key, k -> new ReentrantLock());
+            if (!localLock.tryLock()) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(getLockFile(key), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock fileLock = channel.tryLock()) {
+                if (fileLock == null) {
+                    continue;
+                }
+                deleteDirectory(mirrorDirectory);
+                totalSize -= sizes.get(mirrorDirectory);
+                System.out.printf("Evicted mirror %s from the cache%n", key);
+            } finally {
+                localLock.unlock();
+            }
+        }
+    }
+
+    private Mirror lock(String key) throws IOException {
+        // file locks are held per JVM, so threads of this process are serialized separately
+        ReentrantLock localLock = localLocks.computeIfAbsent(key, k -> new ReentrantLock());
+        localLock.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(getLockFile(key), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock = channel.lock();
+            return new Mirror(cacheDirectory.resolve(key).toFile(), getLockFile(key), channel, fileLock, localLock);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    private static void cloneMirror(String repoUrl, Path mirrorDirectory) throws IOException, GitAPIException {
+        // cloned under a temporary name so an interrupted clone never looks like a usable mirror
+        Path tempDirectory = mirrorDirectory.resolveSibling(mirrorDirectory.getFileName() + ".tmp");
+        if (Files.exists(tempDirectory)) {
+            deleteDirectory(tempDirectory);
+        }
+
+        Git.cloneRepository()
+                .setURI(repoUrl)
+                .setDirectory(tempDirectory.toFile())
+                .setMirror(true)
+                .call()
+                .close();
+        Files.move(tempDirectory, mirrorDirectory);
+    }
+
+    private static void fetch(File mirrorDirectory) throws IOException, GitAPIException {
+        try (Repository repository = new FileRepositoryBuilder().setGitDir(mirrorDirectory).build();
+             Git git = new Git(repository)) {
+            git.fetch().setRemoveDeletedRefs(true).call();
+        }
+    }
+
+    private Path getLockFile(String key) {
+        return cacheDirectory.resolve(key + ".lock");
+    }
+
+    private static FileTime getLastUsed(Path mirrorDirectory) {
+        try {
+            return Files.getLastModifiedTime(mirrorDirectory.resolveSibling(mirrorDirectory.getFileName() + ".lock"));
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long getSize(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String hash(String repoUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(repoUrl.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Mirror implements AutoCloseable {
+        private final File directory;
+        private final Path lockFile;
+        private final FileChannel channel;
+        private final FileLock fileLock;
+        private final ReentrantLock localLock;
+
+        private Mirror(File directory, Path lockFile, FileChannel channel, FileLock fileLock, ReentrantLock localLock) {
+            this.directory = directory;
+            this.lockFile = lockFile;
+            this.channel = channel;
+            this.fileLock = fileLock;
+            this.localLock = localLock;
+        }
+
+        public File getDirectory() {
+            return directory;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // the lock file's modification time tells the eviction when the mirror was last used
+                Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+                fileLock.release();
+                channel.close();
+            } finally {
+                localLock.unlock();
+            }
+        }
+    }
+}
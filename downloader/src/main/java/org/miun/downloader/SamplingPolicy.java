@@ -0,0 +1,16 @@
+package org.miun.downloader;
+
+import org.miun.constants.SamplingStrategy;
+
+/**
+ * The sampling strategy and its parameters, as recorded for every snapshot in the snapshot index.
+ */
+public record SamplingPolicy(SamplingStrategy strategy, int intervalWeeks, int minChangedLines, int minChangedFiles, int maxGapWeeks, int targetSnapshots) {
+
+    public String describe() {
+        if (strategy == SamplingStrategy.INTERVAL) {
+            return String.format("interval;weeks=%d", intervalWeeks);
+        }
+        return String.format("change;minLines=%d;minFiles=%d;maxGapWeeks=%d;targetSnapshots=%d", minChangedLines, minChangedFiles, maxGapWeeks, targetSnapshots);
+    }
+}
@@ -0,0 +1,8 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Date;
+
+public record SnapshotCommit(ObjectId commitId, Date commitDate) {
+}
@@ -4,186 +4,329 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.miun.constants.SnapshotExportMode;
+import org.miun.constants.SnapshotStorage;
 import org.miun.downloader.exceptions.RepositoryAlreadyExistsException;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class SnapshotDownloader {
     private final List<String> repositories;
+    private final Semaphore clonePermits = new Semaphore(CLONE_CONCURRENCY);
+    private final Semaphore exportPermits = new Semaphore(EXPORT_CONCURRENCY);
+    private final SnapshotPathFilter pathFilter = new SnapshotPathFilter(SNAPSHOT_INCLUDES, SNAPSHOT_EXCLUDES);
+    private final MirrorCache mirrorCache = new MirrorCache(Path.of(MIRROR_CACHE_DIRECTORY), MIRROR_CACHE_MAX_SIZE_MB * 1024 * 1024);
+    private final SamplingPolicy samplingPolicy = new SamplingPolicy(SAMPLING_STRATEGY, WEEK_INTERVAL, SAMPLING_MIN_CHANGED_LINES, SAMPLING_MIN_CHANGED_FILES,
+            SAMPLING_MAX_GAP_WEEKS, SAMPLING_TARGET_SNAPSHOTS);
 
     public SnapshotDownloader(List<String> repositories) {
         this.repositories = repositories;
     }
 
-    public void download() throws RepositoryAlreadyExistsException {
+    /**
+     * Downloads all repositories concurrently. A failing repository is reported and does not stop the others.
+     *
+     * @return true if every repository was downloaded
+     */
+    public boolean download() {
         File baseSnapshotDirectory = new File(BASE_SNAPSHOT_DIRECTORY);
         if (!baseSnapshotDirectory.exists()) {
             baseSnapshotDirectory.mkdirs();
         }
 
+        // repositories waiting for a clone permit can overlap with the exports of others
+        int repositoryThreads = Math.max(1, Math.min(repositories.size(), CLONE_CONCURRENCY + EXPORT_CONCURRENCY));
+        ExecutorService repositoryExecutor = Executors.newFixedThreadPool(repositoryThreads);
+        ExecutorService writers = Executors.newFixedThreadPool(EXPORT_THREADS);
+
+        Map<String, Future<?>> downloads = new LinkedHashMap<>();
         for (String repo : repositories) {
-            String repoName = getRepoNameFromUrl(repo);
-            File repoOutputDirectory = new File(baseSnapshotDirectory, repoName);
-            if (repoOutputDirectory.exists()) {
-                throw new RepositoryAlreadyExistsException("Repository " + repoName + " is already exists.");
+            downloads.put(repo, repositoryExecutor.submit(() -> {
+                downloadRepository(repo, baseSnapshotDirectory, writers);
+                return null;
+            }));
+        }
+
+        List<String> failedRepositories = new ArrayList<>();
+        for (Map.Entry<String, Future<?>> download : downloads.entrySet()) {
+            try {
+                download.getValue().get();
+            } catch (ExecutionException e) {
+                System.err.printf("Could not download %s. %s%n", download.getKey(), e.getCause().getMessage());
+                failedRepositories.add(download.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedRepositories.add(download.getKey());
             }
+        }
 
-            repoOutputDirectory.mkdirs();
+        repositoryExecutor.shutdown();
+        writers.shutdown();
 
-            File localRepo = cloneRepo(repo);
-            List<Date> commitDates = getCommitDates(localRepo, 4);
+        try {
+            mirrorCache.evict();
+        } catch (IOException e) {
+            System.err.println("Error evicting mirrors: " + e.getMessage());
+        }
 
-            for (Date commitDate : commitDates) {
-                checkoutCommit(localRepo, commitDate);
-                saveSnapshot(localRepo, repoOutputDirectory, commitDate);
-            }
+        System.out.printf("Downloaded %d of %d repositories%n", repositories.size() - failedRepositories.size(), repositories.size());
+        if (!failedRepositories.isEmpty()) {
+            System.err.println("Failed repositories: " + String.join(", ", failedRepositories));
         }
+        return failedRepositories.isEmpty();
     }
 
-    private static void saveSnapshot(File localRepo, File outputDirectory, Date commitDate) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String snapshotDirectoryName = dateFormat.format(commitDate);
-        File snapshotDirectory = new File(outputDirectory, snapshotDirectoryName);
-
-        if (!snapshotDirectory.exists()) {
-            snapshotDirectory.mkdirs();
+    private void downloadRepository(String repo, File baseSnapshotDirectory, ExecutorService writers)
+            throws RepositoryAlreadyExistsException, IOException, GitAPIException, InterruptedException {
+        String repoName = getRepoNameFromUrl(repo);
+        File repoOutputDirectory = new File(baseSnapshotDirectory, repoName);
+        if (repoOutputDirectory.exists() && !INCREMENTAL_DOWNLOAD) {
+            throw new RepositoryAlreadyExistsException("Repository " + repoName + " is already exists.");
         }
 
+        boolean newRepository = repoOutputDirectory.mkdirs();
         try {
-            Files.walk(localRepo.toPath())
-                    .forEach(sourcePath -> {
-                        Path targetPath = snapshotDirectory.toPath().resolve(localRepo.toPath().relativize(sourcePath));
-                        try {
-                            if (Files.isDirectory(sourcePath)) {
-                                if (!Files.exists(targetPath)) {
-                                    Files.createDirectory(targetPath);
-                                }
-                            } else {
-                                Files.copy(sourcePath, targetPath);
-                            }
-                        } catch (IOException e) {
-                            System.err.println("Error saving snapshot: " + e.getMessage());
-                            System.err.println("Source path: " + sourcePath);
-                            System.err.println("Target path: " + targetPath);
-                        }
-                    });
-        } catch (IOException e) {
-            System.err.println("Error walking file tree: " + e.getMessage());
-            System.exit(1);
+            downloadSnapshots(repo, repoName, repoOutputDirectory, writers);
+        } catch (Exception e) {
+            // remove the partial output so that the repository can be downloaded again
+            if (newRepository) {
+                deleteDirectory(repoOutputDirectory.toPath());
+            }
+            throw e;
         }
     }
 
+    private void downloadSnapshots(String repo, String repoName, File repoOutputDirectory, ExecutorService writers)
+            throws IOException, GitAPIException, InterruptedException {
+        DownloadProgress progress = new DownloadProgress(repoName);
 
-    private static List<Date> getCommitDates(File localRepo, int intervalWeeks) {
-        List<Date> commitDates = new ArrayList<>();
-        try (Repository repository = new FileRepositoryBuilder().setGitDir(new File(localRepo, ".git")).build();
-             Git git = new Git(repository)) {
+        MirrorCache.Mirror mirror;
+        clonePermits.acquire();
+        try {
+            mirror = mirrorCache.acquire(repo, repoName);
+        } finally {
+            clonePermits.release();
+        }
+
+        try (mirror) {
+            progress.repositoryReady();
 
-            Iterable<RevCommit> commits = git.log().call();
-            List<RevCommit> commitList = new ArrayList<>();
-            for (RevCommit commit : commits) {
-                commitList.add(commit);
+            SnapshotIndex snapshotIndex = SnapshotIndex.open(repoOutputDirectory, samplingPolicy.describe());
+            Map.Entry<String, SnapshotCommit> lastSnapshot = snapshotIndex.getLastSnapshot();
+            List<SnapshotCommit> snapshotCommits = sampleCommits(mirror.getDirectory(), lastSnapshot == null ? null : lastSnapshot.getValue());
+            Map<SnapshotCommit, String> snapshotNames = getSnapshotNames(snapshotCommits, snapshotIndex.getSnapshots().keySet());
+            progress.sampled(snapshotNames.size());
+
+            if (SNAPSHOT_EXPORT_MODE == SnapshotExportMode.TREE) {
+                exportSnapshots(mirror.getDirectory(), repoOutputDirectory, snapshotNames, snapshotIndex, writers, progress);
+            } else if (!snapshotNames.isEmpty()) {
+                saveSnapshots(mirror.getDirectory(), repoOutputDirectory, snapshotNames, snapshotIndex, writers, progress);
             }
+        }
 
-            // Reverse the order of commits
-            Collections.reverse(commitList);
+        progress.finished();
+    }
 
-            LocalDate prevCommitDate = null;
+    // the manifest lists the committed files, it is taken from the commit's tree like that of a tree export
+    private void saveSnapshots(File mirrorDirectory, File outputDirectory, Map<SnapshotCommit, String> snapshotNames, SnapshotIndex snapshotIndex,
+                               ExecutorService writers, DownloadProgress progress) throws IOException, GitAPIException, InterruptedException {
+        File localRepo = cloneWorkingCopy(mirrorDirectory);
+        try (Repository repository = openRepository(mirrorDirectory)) {
+            TreeExporter exporter = new TreeExporter(repository, null, pathFilter, writers);
+            SnapshotManifest previousManifest = getLastManifest(outputDirectory, snapshotIndex);
+            for (Map.Entry<SnapshotCommit, String> snapshot : snapshotNames.entrySet()) {
+                exportPermits.acquire();
+                try {
+                    checkoutCommit(localRepo, snapshot.getKey().commitId());
+                    saveSnapshot(localRepo, outputDirectory, snapshot.getValue(), pathFilter, progress);
+                } finally {
+                    exportPermits.release();
+                }
 
-            for (RevCommit commit : commitList) {
-                Date commitDate = Date.from(commit.getAuthorIdent().getWhen().toInstant());
-                LocalDate localDate = commitDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                SnapshotManifest manifest = exporter.manifest(snapshot.getKey().commitId());
+                manifest.write(SnapshotManifest.getManifestFile(outputDirectory, snapshot.getValue()), previousManifest);
+                previousManifest = manifest;
+                snapshotIndex.append(snapshot.getValue(), snapshot.getKey());
+            }
+        } finally {
+            deleteDirectory(localRepo.toPath());
+        }
+    }
+
+    private void exportSnapshots(File localRepo, File outputDirectory, Map<SnapshotCommit, String> snapshotNames, SnapshotIndex snapshotIndex,
+                                 ExecutorService writers, DownloadProgress progress) throws IOException, InterruptedException {
+        try (Repository repository = openRepository(localRepo)) {
+            BlobStore blobStore = SNAPSHOT_STORAGE == SnapshotStorage.DEDUP ? new BlobStore(repository, new File(outputDirectory, ".objects").toPath()) : null;
+            TreeExporter exporter = new TreeExporter(repository, blobStore, pathFilter, writers);
 
-                if (prevCommitDate == null || localDate.isAfter(prevCommitDate.plusWeeks(intervalWeeks))) {
-                    commitDates.add(commitDate);
-                    prevCommitDate = localDate;
+            SnapshotManifest previousManifest = getLastManifest(outputDirectory, snapshotIndex);
+            for (Map.Entry<SnapshotCommit, String> snapshot : snapshotNames.entrySet()) {
+                File snapshotDirectory = new File(outputDirectory, snapshot.getValue());
+                if (snapshotDirectory.exists()) {
+                    // left behind by an interrupted run, it was never recorded in the index
+                    deleteDirectory(snapshotDirectory.toPath());
                 }
+
+                ExportResult exportResult;
+                exportPermits.acquire();
+                try {
+                    if (SNAPSHOT_STORAGE == SnapshotStorage.ARCHIVE) {
+                        exportResult = exporter.exportArchive(snapshot.getKey().commitId(), new File(outputDirectory, snapshot.getValue() + ".zip").toPath());
+                    } else {
+                        exportResult = exporter.export(snapshot.getKey().commitId(), snapshotDirectory.toPath());
+                    }
+                } finally {
+                    exportPermits.release();
+                }
+
+                exportResult.manifest().write(SnapshotManifest.getManifestFile(outputDirectory, snapshot.getValue()), previousManifest);
+                previousManifest = exportResult.manifest();
+                snapshotIndex.append(snapshot.getValue(), snapshot.getKey());
+                progress.snapshotWritten(snapshot.getValue(), exportResult.files(), exportResult.bytes(), exportResult.skippedFiles(), exportResult.skippedBytes());
             }
-        } catch (IOException | GitAPIException e) {
-            System.err.println("Error getting commit dates: " + e.getMessage());
-            System.exit(1);
         }
-        Collections.reverse(commitDates);
-        return commitDates;
     }
 
-    private static File cloneRepo(String repoUrl) {
+    // a file that cannot be copied fails the snapshot, which is removed so that an incomplete snapshot is never indexed
+    private static void saveSnapshot(File localRepo, File outputDirectory, String snapshotDirectoryName, SnapshotPathFilter pathFilter,
+                                     DownloadProgress progress) throws IOException {
+        Path snapshotDirectory = new File(outputDirectory, snapshotDirectoryName).toPath();
+        if (Files.exists(snapshotDirectory)) {
+            // left behind by an interrupted run, it was never recorded in the index
+            deleteDirectory(snapshotDirectory);
+        }
+
+        Path sourceDirectory = localRepo.toPath();
+        AtomicLong copiedFiles = new AtomicLong();
+        AtomicLong copiedBytes = new AtomicLong();
+        AtomicLong skippedFiles = new AtomicLong();
+        AtomicLong skippedBytes = new AtomicLong();
         try {
-            Path tempDir = Files.createTempDirectory("repo-");
-            Git.cloneRepository()
-                    .setURI(repoUrl)
-                    .setDirectory(tempDir.toFile())
-                    .call();
-            return tempDir.toFile();
-        } catch (IOException | GitAPIException e) {
-            System.err.println("Error cloning repository: " + e.getMessage());
-            System.exit(1);
-            return null;
+            Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    if (directory.equals(sourceDirectory.resolve(".git"))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(snapshotDirectory.resolve(sourceDirectory.relativize(directory).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Path relativePath = sourceDirectory.relativize(file);
+                    if (!pathFilter.isIncluded(relativePath.toString().replace(File.separatorChar, '/'))) {
+                        skippedFiles.incrementAndGet();
+                        skippedBytes.addAndGet(attributes.size());
+                    } else {
+                        // symbolic links are copied as links, like the checkout holds them
+                        Files.copy(file, snapshotDirectory.resolve(relativePath.toString()), StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                        copiedFiles.incrementAndGet();
+                        copiedBytes.addAndGet(attributes.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            deleteDirectory(snapshotDirectory);
+            throw new IOException("Could not save snapshot " + snapshotDirectoryName + ": " + e.getMessage(), e);
         }
+        progress.snapshotWritten(snapshotDirectoryName, copiedFiles.get(), copiedBytes.get(), skippedFiles.get(), skippedBytes.get());
     }
 
-    private static void checkoutCommit(File localRepo, Date commitDate) {
-        try (Repository repository = new FileRepositoryBuilder().setGitDir(new File(localRepo, ".git")).build();
-             Git git = new Git(repository)) {
+    private static SnapshotManifest getLastManifest(File outputDirectory, SnapshotIndex snapshotIndex) throws IOException {
+        Map.Entry<String, SnapshotCommit> lastSnapshot = snapshotIndex.getLastSnapshot();
+        if (lastSnapshot == null) {
+            return null;
+        }
 
-            ObjectId commitId = findCommitByDate(repository, commitDate);
-            if (commitId != null) {
-                git.checkout().setName(commitId.getName()).call();
-            } else {
-                System.err.println("No commit found for the specified date: " + commitDate);
-            }
-        } catch (IOException | GitAPIException e) {
-            System.err.println("Error checking out commit: " + e.getMessage());
-            System.exit(1);
+        File manifestFile = SnapshotManifest.getManifestFile(outputDirectory, lastSnapshot.getKey());
+        return manifestFile.exists() ? SnapshotManifest.read(manifestFile) : null;
+    }
+
+    private List<SnapshotCommit> sampleCommits(File localRepo, SnapshotCommit lastSnapshot) throws IOException {
+        try (Repository repository = openRepository(localRepo)) {
+            return new CommitSampler(COMMIT_TRAVERSAL, samplingPolicy).sample(repository, lastSnapshot);
         }
     }
 
+    // snapshots are named by date; commits sharing a date are told apart by their abbreviated id
+    private static Map<SnapshotCommit, String> getSnapshotNames(List<SnapshotCommit> snapshotCommits, Set<String> existingNames) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Map<SnapshotCommit, String> snapshotNames = new LinkedHashMap<>();
+        Set<String> usedNames = new HashSet<>(existingNames);
 
-    private static ObjectId findCommitByDate(Repository repository, Date targetDate) {
-        try (RevWalk revWalk = new RevWalk(repository)) {
-            ObjectId head = repository.resolve("HEAD");
-            revWalk.markStart(revWalk.parseCommit(head));
+        for (SnapshotCommit snapshotCommit : snapshotCommits) {
+            String snapshotName = dateFormat.format(snapshotCommit.commitDate());
+            if (!usedNames.add(snapshotName)) {
+                snapshotName = snapshotName + "_" + snapshotCommit.commitId().abbreviate(7).name();
+                usedNames.add(snapshotName);
+            }
+            snapshotNames.put(snapshotCommit, snapshotName);
+        }
 
-            RevCommit closestCommit = null;
-            long closestTimeDifference = Long.MAX_VALUE;
+        return snapshotNames;
+    }
 
-            for (RevCommit commit : revWalk) {
-                Date currentCommitDate = Date.from(commit.getAuthorIdent().getWhen().toInstant());
-                long timeDifference = Math.abs(currentCommitDate.getTime() - targetDate.getTime());
+    // checkouts need a working tree; it is cloned locally from the mirror and removed afterwards
+    private static File cloneWorkingCopy(File mirrorDirectory) throws IOException, GitAPIException {
+        Path tempDir = Files.createTempDirectory("repo-");
+        Git.cloneRepository()
+                .setURI(mirrorDirectory.toURI().toString())
+                .setDirectory(tempDir.toFile())
+                .call()
+                .close();
+        return tempDir.toFile();
+    }
 
-                if (timeDifference < closestTimeDifference) {
-                    closestCommit = commit;
-                    closestTimeDifference = timeDifference;
-                }
-            }
+    private static Repository openRepository(File localRepo) throws IOException {
+        File gitDir = new File(localRepo, ".git");
+        return new FileRepositoryBuilder().setGitDir(gitDir.isDirectory() ? gitDir : localRepo).build();
+    }
 
-            return closestCommit != null ? closestCommit.getId() : null;
-        } catch (IOException e) {
-            System.err.println("Error finding commit by date: " + e.getMessage());
-            System.exit(1);
+    private static void checkoutCommit(File localRepo, ObjectId commitId) throws IOException, GitAPIException {
+        try (Repository repository = openRepository(localRepo);
+             Git git = new Git(repository)) {
+            git.checkout().setName(commitId.getName()).call();
         }
-
-        return null;
     }
 
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
 
     private static String getRepoNameFromUrl(String repoUrl) {
-        Pattern pattern = Pattern.compile(".*/(.*?)(\\.git)?/?$");
+        Pattern pattern = Pattern.compile(".*/([^/]+?)(\\.git)?/?$");
         Matcher matcher = pattern.matcher(repoUrl);
 
         if (matcher.find()) {
@@ -0,0 +1,77 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records which commit every snapshot of a repository was taken from, in the order the snapshots were written.
+ */
+public class SnapshotIndex {
+    private static final String HEADER = "Snapshot,CommitId,CommitDate,Sampling";
+
+    private final File indexFile;
+    private final String sampling;
+    private final Map<String, SnapshotCommit> snapshots = new LinkedHashMap<>();
+
+    private SnapshotIndex(File indexFile, String sampling) {
+        this.indexFile = indexFile;
+        this.sampling = sampling;
+    }
+
+    /**
+     * Opens the index of a repository; snapshots appended to it are recorded with the given sampling description.
+     */
+    public static SnapshotIndex open(File repoOutputDirectory, String sampling) throws IOException {
+        SnapshotIndex index = new SnapshotIndex(new File(repoOutputDirectory, "snapshots.csv"), sampling);
+        if (!index.indexFile.exists()) {
+            return index;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(index.indexFile))) {
+            reader.readLine();  // skip header
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                SnapshotCommit snapshotCommit = new SnapshotCommit(ObjectId.fromString(columns[1]), Date.from(Instant.parse(columns[2])));
+                index.snapshots.put(columns[0], snapshotCommit);
+            }
+        }
+        return index;
+    }
+
+    public Map<String, SnapshotCommit> getSnapshots() {
+        return snapshots;
+    }
+
+    public Map.Entry<String, SnapshotCommit> getLastSnapshot() {
+        Map.Entry<String, SnapshotCommit> lastSnapshot = null;
+        for (Map.Entry<String, SnapshotCommit> snapshot : snapshots.entrySet()) {
+            lastSnapshot = snapshot;
+        }
+        return lastSnapshot;
+    }
+
+    public synchronized void append(String snapshotName, SnapshotCommit snapshotCommit) throws IOException {
+        boolean newIndex = !indexFile.exists();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(indexFile, true))) {
+            if (newIndex) {
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            writer.write(snapshotName + "," + snapshotCommit.commitId().name() + "," + snapshotCommit.commitDate().toInstant() + "," + sampling);
+            writer.newLine();
+        }
+        snapshots.put(snapshotName, snapshotCommit);
+    }
+}
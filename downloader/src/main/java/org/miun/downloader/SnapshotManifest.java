@@ -0,0 +1,74 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lists the files of a snapshot with their git object ids and how they changed since the previous snapshot.
+ */
+public class SnapshotManifest {
+    private static final String HEADER = "ObjectId,Change,Path";
+
+    private final Map<String, ObjectId> entries;
+
+    public SnapshotManifest(Map<String, ObjectId> entries) {
+        this.entries = entries;
+    }
+
+    public Map<String, ObjectId> getEntries() {
+        return entries;
+    }
+
+    public static File getManifestFile(File repoOutputDirectory, String snapshotName) {
+        return new File(repoOutputDirectory, snapshotName + ".manifest.csv");
+    }
+
+    public void write(File manifestFile, SnapshotManifest previous) throws IOException {
+        Map<String, ObjectId> previousEntries = previous == null ? Map.of() : previous.getEntries();
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(manifestFile))) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            for (Map.Entry<String, ObjectId> entry : entries.entrySet()) {
+                ObjectId previousId = previousEntries.get(entry.getKey());
+                String change = previousId == null ? "ADDED" : previousId.equals(entry.getValue()) ? "UNCHANGED" : "MODIFIED";
+                writer.write(entry.getValue().name() + "," + change + "," + entry.getKey());
+                writer.newLine();
+            }
+
+            for (Map.Entry<String, ObjectId> previousEntry : previousEntries.entrySet()) {
+                if (!entries.containsKey(previousEntry.getKey())) {
+                    writer.write(previousEntry.getValue().name() + ",DELETED," + previousEntry.getKey());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    public static SnapshotManifest read(File manifestFile) throws IOException {
+        Map<String, ObjectId> entries = new TreeMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifestFile))) {
+            reader.readLine();  // skip header
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",", 3);
+                if (!columns[1].equals("DELETED")) {
+                    entries.put(columns[2], ObjectId.fromString(columns[0]));
+                }
+            }
+        }
+
+        return new SnapshotManifest(entries);
+    }
+}
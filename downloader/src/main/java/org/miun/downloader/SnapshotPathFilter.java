@@ -0,0 +1,47 @@
+package org.miun.downloader;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which repository paths are written to a snapshot, based on include and exclude globs.
+ * Globs use '/' as separator; '*' and '?' stay within a path segment, while a '**' segment spans
+ * any number of directories, including none.
+ */
+public class SnapshotPathFilter {
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    public SnapshotPathFilter(List<String> includeGlobs, List<String> excludeGlobs) {
+        this.includes = includeGlobs.stream().map(SnapshotPathFilter::toPattern).toList();
+        this.excludes = excludeGlobs.stream().map(SnapshotPathFilter::toPattern).toList();
+    }
+
+    public boolean isIncluded(String path) {
+        boolean included = includes.isEmpty() || includes.stream().anyMatch(pattern -> pattern.matcher(path).matches());
+        return included && excludes.stream().noneMatch(pattern -> pattern.matcher(path).matches());
+    }
+
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                    regex.append("(?:.*/)?");
+                    i += 2;
+                } else {
+                    regex.append(".*");
+                    i++;
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
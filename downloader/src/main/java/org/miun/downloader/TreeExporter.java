@@ -0,0 +1,187 @@
+package org.miun.downloader;
+
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+/**
+ * Writes the tree of a commit directly from the object database into a directory,
+ * without touching the working tree of the repository.
+ */
+public class TreeExporter {
+    private final Repository repository;
+    private final BlobStore blobStore;
+    private final SnapshotPathFilter pathFilter;
+    private final ExecutorService writers;
+
+    public TreeExporter(Repository repository, BlobStore blobStore, SnapshotPathFilter pathFilter, ExecutorService writers) {
+        this.repository = repository;
+        this.blobStore = blobStore;
+        this.pathFilter = pathFilter;
+        this.writers = writers;
+    }
+
+    public ExportResult export(ObjectId commitId, Path targetDirectory) throws IOException {
+        List<Future<Long>> pendingWrites = new ArrayList<>();
+        TreeContents contents = walkTree(commitId, (path, blobId, mode) ->
+                pendingWrites.add(writers.submit(() -> writeBlob(blobId, mode, targetDirectory.resolve(path)))));
+
+        long writtenBytes = awaitWrites(pendingWrites);
+        return new ExportResult(new SnapshotManifest(contents.manifestEntries()), pendingWrites.size(), writtenBytes, contents.skippedFiles(), contents.skippedBytes());
+    }
+
+    /**
+     * Writes the tree of a commit as a single zip archive. The archive only appears under its final name once it is complete.
+     */
+    public ExportResult exportArchive(ObjectId commitId, Path archiveFile) throws IOException {
+        Path tempFile = archiveFile.resolveSibling(archiveFile.getFileName() + ".tmp");
+        AtomicLong writtenBytes = new AtomicLong();
+
+        TreeContents contents;
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            contents = walkTree(commitId, (path, blobId, mode) -> {
+                ObjectLoader loader = repository.open(blobId, OBJ_BLOB);
+                zipOutputStream.putNextEntry(newArchiveEntry(path, mode));
+                loader.copyTo(zipOutputStream);
+                zipOutputStream.closeEntry();
+                writtenBytes.addAndGet(loader.getSize());
+            });
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        Files.move(tempFile, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ExportResult(new SnapshotManifest(contents.manifestEntries()), contents.manifestEntries().size(), writtenBytes.get(), contents.skippedFiles(), contents.skippedBytes());
+    }
+
+    /**
+     * Lists the files of a commit that an export would write, without reading their contents.
+     */
+    public SnapshotManifest manifest(ObjectId commitId) throws IOException {
+        return new SnapshotManifest(walkTree(commitId, (path, blobId, mode) -> {
+        }).manifestEntries());
+    }
+
+    // zip entries written by java.util.zip carry no permissions, so the mode is stored in the Info-ZIP Unix extra
+    // field (tag "nu"): CRC-32 of the rest, mode, size or device, uid and gid, all little endian
+    private static ZipEntry newArchiveEntry(String path, FileMode mode) {
+        ZipEntry entry = new ZipEntry(path);
+        ByteBuffer unixData = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+        unixData.putShort((short) (mode == FileMode.EXECUTABLE_FILE ? 0100755 : 0100644));
+        CRC32 crc = new CRC32();
+        crc.update(unixData.array());
+
+        ByteBuffer extra = ByteBuffer.allocate(4 + 4 + unixData.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        extra.putShort((short) 0x756e).putShort((short) (4 + unixData.capacity())).putInt((int) crc.getValue()).put(unixData.array());
+        entry.setExtra(extra.array());
+        return entry;
+    }
+
+    private TreeContents walkTree(ObjectId commitId, EntryWriter entryWriter) throws IOException {
+        Map<String, ObjectId> manifestEntries = new TreeMap<>();
+        long skippedFiles = 0;
+        long skippedBytes = 0;
+
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+
+            while (treeWalk.next()) {
+                FileMode mode = treeWalk.getFileMode(0);
+                if (mode == FileMode.GITLINK) {
+                    continue;  // submodule contents are not part of this repository
+                }
+
+                ObjectId blobId = treeWalk.getObjectId(0);
+                if (!pathFilter.isIncluded(treeWalk.getPathString())) {
+                    // excluded content is never read, only its size is looked up for the statistics
+                    skippedFiles++;
+                    skippedBytes += treeWalk.getObjectReader().getObjectSize(blobId, OBJ_BLOB);
+                    continue;
+                }
+
+                manifestEntries.put(treeWalk.getPathString(), blobId);
+                entryWriter.write(treeWalk.getPathString(), blobId, mode);
+            }
+        }
+
+        return new TreeContents(manifestEntries, skippedFiles, skippedBytes);
+    }
+
+    private long writeBlob(ObjectId blobId, FileMode mode, Path targetPath) throws IOException {
+        Files.createDirectories(targetPath.getParent());
+
+        // symbolic links are written as plain files holding the link target, like a checkout with core.symlinks=false
+        if (blobStore != null) {
+            return blobStore.materialize(blobId, mode == FileMode.EXECUTABLE_FILE, targetPath);
+        }
+
+        ObjectLoader loader = repository.open(blobId, OBJ_BLOB);
+        try (OutputStream outputStream = Files.newOutputStream(targetPath)) {
+            loader.copyTo(outputStream);
+        }
+
+        if (mode == FileMode.EXECUTABLE_FILE) {
+            targetPath.toFile().setExecutable(true);
+        }
+        return loader.getSize();
+    }
+
+    private static long awaitWrites(List<Future<Long>> pendingWrites) throws IOException {
+        IOException failure = null;
+        long writtenBytes = 0;
+        for (Future<Long> pendingWrite : pendingWrites) {
+            try {
+                writtenBytes += pendingWrite.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing snapshot", e);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return writtenBytes;
+    }
+
+    private interface EntryWriter {
+        void write(String path, ObjectId blobId, FileMode mode) throws IOException;
+    }
+
+    private record TreeContents(Map<String, ObjectId> manifestEntries, long skippedFiles, long skippedBytes) {
+    }
+}
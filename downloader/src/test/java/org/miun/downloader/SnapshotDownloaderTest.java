@@ -0,0 +1,179 @@
+package org.miun.downloader;
+
+import junit.framework.TestCase;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.miun.constants.Constants;
+import org.miun.constants.SamplingStrategy;
+import org.miun.constants.SnapshotExportMode;
+import org.miun.constants.SnapshotStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class SnapshotDownloaderTest extends TestCase {
+    private Path directory;
+    private Path sourceRepository;
+    private String baseSnapshotDirectory;
+    private String mirrorCacheDirectory;
+    private boolean incrementalDownload;
+    private int weekInterval;
+    private SamplingStrategy samplingStrategy;
+    private SnapshotExportMode snapshotExportMode;
+    private SnapshotStorage snapshotStorage;
+    private List<String> snapshotIncludes;
+    private List<String> snapshotExcludes;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-downloader-test");
+        sourceRepository = directory.resolve("project");
+
+        baseSnapshotDirectory = Constants.BASE_SNAPSHOT_DIRECTORY;
+        mirrorCacheDirectory = Constants.MIRROR_CACHE_DIRECTORY;
+        incrementalDownload = Constants.INCREMENTAL_DOWNLOAD;
+        weekInterval = Constants.WEEK_INTERVAL;
+        samplingStrategy = Constants.SAMPLING_STRATEGY;
+        snapshotExportMode = Constants.SNAPSHOT_EXPORT_MODE;
+        snapshotStorage = Constants.SNAPSHOT_STORAGE;
+        snapshotIncludes = Constants.SNAPSHOT_INCLUDES;
+        snapshotExcludes = Constants.SNAPSHOT_EXCLUDES;
+
+        // the downloader reads the settings when it is created
+        Constants.BASE_SNAPSHOT_DIRECTORY = directory.resolve("snapshots").toString();
+        Constants.MIRROR_CACHE_DIRECTORY = directory.resolve("mirrors").toString();
+        Constants.INCREMENTAL_DOWNLOAD = true;
+        Constants.WEEK_INTERVAL = 4;
+        Constants.SAMPLING_STRATEGY = SamplingStrategy.INTERVAL;
+        Constants.SNAPSHOT_EXPORT_MODE = SnapshotExportMode.TREE;
+        Constants.SNAPSHOT_STORAGE = SnapshotStorage.COPY;
+        Constants.SNAPSHOT_INCLUDES = List.of();
+        Constants.SNAPSHOT_EXCLUDES = List.of();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Constants.BASE_SNAPSHOT_DIRECTORY = baseSnapshotDirectory;
+        Constants.MIRROR_CACHE_DIRECTORY = mirrorCacheDirectory;
+        Constants.INCREMENTAL_DOWNLOAD = incrementalDownload;
+        Constants.WEEK_INTERVAL = weekInterval;
+        Constants.SAMPLING_STRATEGY = samplingStrategy;
+        Constants.SNAPSHOT_EXPORT_MODE = snapshotExportMode;
+        Constants.SNAPSHOT_STORAGE = snapshotStorage;
+        Constants.SNAPSHOT_INCLUDES = snapshotIncludes;
+        Constants.SNAPSHOT_EXCLUDES = snapshotExcludes;
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void testIncrementalDownloadAddsOnlyNewSnapshots() throws Exception {
+        Path output = directory.resolve("snapshots").resolve("project");
+        try (Git git = Git.init().setDirectory(sourceRepository.toFile()).call()) {
+            commit(git, "2020-01-01");
+            commit(git, "2020-03-01");
+
+            assertTrue(download());
+            assertEquals(List.of("2020-01-01", "2020-03-01"), listSnapshots(output));
+            List<String> firstIndex = Files.readAllLines(output.resolve("snapshots.csv"));
+            assertEquals(3, firstIndex.size());
+            assertEquals("Snapshot,CommitId,CommitDate,Sampling", firstIndex.get(0));
+
+            // marks the existing snapshots, a second export of them would overwrite the mark
+            Path firstSnapshotFile = output.resolve("2020-01-01/App.java");
+            FileTime marked = FileTime.from(Instant.parse("2000-01-01T00:00:00Z"));
+            Files.setLastModifiedTime(firstSnapshotFile, marked);
+
+            // 2020-05-10 is within four weeks of 2020-05-01 and is not sampled
+            commit(git, "2020-05-01");
+            commit(git, "2020-05-10");
+            commit(git, "2020-07-01");
+        }
+
+        assertTrue(download());
+
+        assertEquals(List.of("2020-01-01", "2020-03-01", "2020-05-01", "2020-07-01"), listSnapshots(output));
+        assertEquals(Instant.parse("2000-01-01T00:00:00Z"), Files.getLastModifiedTime(output.resolve("2020-01-01/App.java")).toInstant());
+        assertEquals("// 2020-01-01\n", Files.readString(output.resolve("2020-01-01/App.java")));
+        assertEquals("// 2020-07-01\n", Files.readString(output.resolve("2020-07-01/App.java")));
+
+        List<String> index = Files.readAllLines(output.resolve("snapshots.csv"));
+        assertEquals(5, index.size());
+        assertTrue(index.get(3).startsWith("2020-05-01,"));
+        assertTrue(index.get(4).startsWith("2020-07-01,"));
+    }
+
+    public void testCheckoutExportSkipsGitAndWritesManifest() throws Exception {
+        Constants.SNAPSHOT_EXPORT_MODE = SnapshotExportMode.CHECKOUT;
+        Path output = directory.resolve("snapshots").resolve("project");
+        try (Git git = Git.init().setDirectory(sourceRepository.toFile()).call()) {
+            commit(git, "2020-01-01");
+        }
+
+        assertTrue(download());
+
+        assertEquals(List.of("2020-01-01"), listSnapshots(output));
+        assertFalse(Files.exists(output.resolve("2020-01-01/.git")));
+        assertEquals("// 2020-01-01\n", Files.readString(output.resolve("2020-01-01/App.java")));
+        List<String> manifest = Files.readAllLines(output.resolve("2020-01-01.manifest.csv"));
+        assertEquals(2, manifest.size());
+        assertTrue(manifest.get(1).endsWith(",ADDED,App.java"));
+    }
+
+    public void testArchiveRecordsExecutableMode() throws Exception {
+        Constants.SNAPSHOT_STORAGE = SnapshotStorage.ARCHIVE;
+        try (Git git = Git.init().setDirectory(sourceRepository.toFile()).call()) {
+            Files.writeString(sourceRepository.resolve("mvnw"), "#!/bin/sh\n");
+            assertTrue(sourceRepository.resolve("mvnw").toFile().setExecutable(true));
+            git.add().addFilepattern("mvnw").call();
+            commit(git, "2020-01-01");
+        }
+
+        assertTrue(download());
+
+        try (ZipFile archive = new ZipFile(directory.resolve("snapshots/project/2020-01-01.zip").toFile())) {
+            assertEquals(0100755, getUnixMode(archive.getEntry("mvnw")));
+            assertEquals(0100644, getUnixMode(archive.getEntry("App.java")));
+        }
+    }
+
+    private boolean download() {
+        return new SnapshotDownloader(List.of(sourceRepository.toUri().toString())).download();
+    }
+
+    // commits at noon UTC, so the snapshot takes the commit's date in any time zone the test runs in
+    private void commit(Git git, String date) throws Exception {
+        Files.writeString(sourceRepository.resolve("App.java"), "// " + date + "\n");
+        git.add().addFilepattern("App.java").call();
+        PersonIdent author = new PersonIdent("Test", "test@example.org", Date.from(Instant.parse(date + "T12:00:00Z")), TimeZone.getTimeZone("UTC"));
+        git.commit().setMessage(date).setAuthor(author).setCommitter(author).call();
+    }
+
+    // the mode in the Info-ZIP Unix extra field, which follows the tag, the size and a CRC-32
+    private static int getUnixMode(ZipEntry entry) {
+        ByteBuffer extra = ByteBuffer.wrap(entry.getExtra()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x756e, Short.toUnsignedInt(extra.getShort(0)));
+        return Short.toUnsignedInt(extra.getShort(8));
+    }
+
+    private static List<String> listSnapshots(Path output) throws IOException {
+        try (Stream<Path> paths = Files.list(output)) {
+            return paths.filter(Files::isDirectory).map(path -> path.getFileName().toString()).filter(name -> !name.startsWith(".")).sorted().toList();
+        }
+    }
+}